@@ -6,20 +6,46 @@
  */
 package com.szmslab.grepexcel;
 
+import com.github.mygreen.cellformatter.CellFormatter;
+import com.github.mygreen.cellformatter.CommonCell;
+import com.github.mygreen.cellformatter.FormatterResolver;
+import com.github.mygreen.cellformatter.POICell;
 import com.github.mygreen.cellformatter.POICellFormatter;
+import com.github.mygreen.cellformatter.POIEvaluatedCell;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -32,8 +58,17 @@ public class GrepExcel {
 
     /**
      * ロガー。
+     * <p>
+     * {@link #availableExtensions()}の呼び出しだけでロギングが初期化されないよう、
+     * 検索処理で初めて参照された時点で初期化します。
      */
-    private static final Logger LOG = LoggerFactory.getLogger(GrepExcel.class);
+    private static final class LogHolder {
+
+        /**
+         * ロガー。
+         */
+        private static final Logger LOG = LoggerFactory.getLogger(GrepExcel.class);
+    }
 
     /**
      * Excelファイルの拡張子。
@@ -41,9 +76,152 @@ public class GrepExcel {
     private static final String[] EXTENSIONS = {"xls", "xlsx", "xlsm", "xlt", "xltx"};
 
     /**
-     * セル値取得フォーマッタ。
+     * アーカイブファイルの拡張子。
+     */
+    private static final String[] ARCHIVE_EXTENSIONS = {"zip", "tar", "tar.gz", "tgz"};
+
+    /**
+     * セル範囲の書式（例: {@code A1:F100}, {@code A:F}, {@code 1:100}, {@code B2}）。
+     */
+    private static final Pattern RANGE_PATTERN =
+            Pattern.compile("([A-Z]*)([0-9]*)(?::([A-Z]*)([0-9]*))?", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * ワークシートの検索処理を表すインタフェースです。
+     */
+    @FunctionalInterface
+    private interface SheetSearcher {
+
+        /**
+         * ワークシートを検索します。
+         *
+         * @param filePath   検索対象のファイルパス
+         * @param sheet      ワークシート
+         * @param evaluator  数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+         * @param resultList 検索結果の追加先
+         */
+        void search(String filePath, Sheet sheet, FormulaEvaluator evaluator, GrepExcelResultList resultList);
+
+    }
+
+    /**
+     * ストリームで読み込んだ行から文字列を検索するクラスです。
+     * <p>
+     * 前後のセルを収集する場合は、ワークシートごとに{@link GrepExcelContextBuffer}を生成し、
+     * ワークブック全体を読み込む場合と同じ範囲の行・列のセルを渡します。
+     */
+    private class StreamingSearcher implements GrepExcelStreamingReader.RowHandler {
+
+        /**
+         * コンパイルされた検索パターン。
+         */
+        private final Pattern pattern;
+
+        /**
+         * 検索対象のファイルパス。
+         */
+        private final String filePath;
+
+        /**
+         * 検索結果の追加先。
+         */
+        private final GrepExcelResultList resultList;
+
+        /**
+         * 検索中のワークシート名。
+         */
+        private String sheetName;
+
+        /**
+         * 検索結果の追加先における、検索中のワークシートの位置ID。
+         */
+        private int locationId;
+
+        /**
+         * 前後のセルの収集に使用するバッファ（前後のセルを収集しない場合は {@code null}）。
+         */
+        private GrepExcelContextBuffer buffer;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param pattern    コンパイルされた検索パターン
+         * @param filePath   検索対象のファイルパス
+         * @param resultList 検索結果の追加先
+         */
+        StreamingSearcher(Pattern pattern, String filePath, GrepExcelResultList resultList) {
+            this.pattern = pattern;
+            this.filePath = filePath;
+            this.resultList = resultList;
+        }
+
+        @Override
+        public void row(String sheetName, int rowIndex, List<GrepExcelStreamingReader.StreamingCell> cells) {
+            if (!sheetName.equals(this.sheetName)) {
+                this.sheetName = sheetName;
+                this.locationId = resultList.locationId(filePath, sheetName);
+                this.buffer = beforeRows == 0 && afterRows == 0 && beforeColumns == 0 && afterColumns == 0
+                        ? null
+                        : new GrepExcelContextBuffer(beforeRows, afterRows, beforeColumns, afterColumns);
+            }
+            // 前後のセルを収集するため、検索対象のセル範囲の前後の行・列も走査する
+            if (rowIndex < firstRow - beforeRows || (lastRow >= 0 && rowIndex > lastRow + afterRows)) {
+                return;
+            }
+            boolean targetRow = rowIndex >= firstRow && (lastRow < 0 || rowIndex <= lastRow);
+            SortedMap<Integer, String> values = new TreeMap<>();
+            List<Integer> matchedColumns = new ArrayList<>();
+            for (GrepExcelStreamingReader.StreamingCell cell : cells) {
+                int columnIndex = cell.getColumnIndex();
+                if (columnIndex < firstColumn - beforeColumns
+                        || (lastColumn >= 0 && columnIndex > lastColumn + afterColumns)) {
+                    continue;
+                }
+                boolean target = targetRow
+                        && columnIndex >= firstColumn && (lastColumn < 0 || columnIndex <= lastColumn)
+                        && isTargetCellType(cell.getCellType());
+                if (!target && buffer == null) {
+                    continue;
+                }
+
+                String cellValue = toStringValue(cell);
+                values.put(columnIndex, cellValue);
+
+                if (!target) {
+                    continue;
+                }
+
+                if (LogHolder.LOG.isDebugEnabled()) {
+                    LogHolder.LOG.debug("file: {}, sheet: {}, cell: {}, value: {}",
+                            filePath, sheetName, cell.getCellAddress(), cellValue);
+                }
+
+                if (pattern.matcher(cellValue).find()) {
+                    matchedColumns.add(columnIndex);
+                }
+            }
+
+            if (buffer == null) {
+                for (int columnIndex : matchedColumns) {
+                    resultList.add(locationId, rowIndex, columnIndex, values.get(columnIndex));
+                }
+                return;
+            }
+            buffer.startRow(rowIndex, values);
+            for (int columnIndex : matchedColumns) {
+                resultList.add(locationId, rowIndex, columnIndex, values.get(columnIndex));
+                resultList.setContext(resultList.size() - 1,
+                        buffer.capture(filePath, sheetName, rowIndex, columnIndex, values));
+            }
+            buffer.endRow(rowIndex, values);
+        }
+
+    }
+
+    /**
+     * セル値取得フォーマッタ（遅延初期化）。
      */
-    private final POICellFormatter formatter = new POICellFormatter();
+    private volatile POICellFormatter formatter;
 
     /**
      * 大文字・小文字を区別しないかどうか。
@@ -60,15 +238,85 @@ public class GrepExcel {
      */
     private boolean formulaResult;
 
+    /**
+     * 数式セルの計算結果として、ファイルに保存されている値を使用するかどうか。
+     */
+    private boolean cachedFormulaResult;
+
     /**
      * ディレクトリを再帰的に検索するかどうか。
      */
     private boolean recursive;
 
     /**
-     * 検索処理を並列実行するかどうか。
+     * 検索処理の実行方法。
+     */
+    private GrepExcelExecutionMode executionMode = GrepExcelExecutionMode.SEQUENTIAL;
+
+    /**
+     * アーカイブファイル内のExcelファイルを検索するかどうか。
+     */
+    private boolean archive;
+
+    /**
+     * 検索対象とするワークシート名のパターン（{@code null}の場合は全てのワークシート）。
+     */
+    private Pattern sheetNamePattern;
+
+    /**
+     * 検索対象とするセル範囲（{@code null}の場合は全てのセル）。
+     */
+    private String range;
+
+    /**
+     * 検索対象とする最初の行インデックス（0始まり）。
+     */
+    private int firstRow = 0;
+
+    /**
+     * 検索対象とする最後の行インデックス（0始まり、{@code -1}の場合は最終行まで）。
+     */
+    private int lastRow = -1;
+
+    /**
+     * 検索対象とする最初の列インデックス（0始まり）。
+     */
+    private int firstColumn = 0;
+
+    /**
+     * 検索対象とする最後の列インデックス（0始まり、{@code -1}の場合は最終列まで）。
+     */
+    private int lastColumn = -1;
+
+    /**
+     * 検索対象とするセルの種類（空の場合は全ての種類）。
+     */
+    private final Set<GrepExcelCellType> cellTypes = EnumSet.noneOf(GrepExcelCellType.class);
+
+    /**
+     * 検索結果の前に出力する行数。
+     */
+    private int beforeRows;
+
+    /**
+     * 検索結果の後に出力する行数。
+     */
+    private int afterRows;
+
+    /**
+     * 検索結果の前（左）に出力する列数。
+     */
+    private int beforeColumns;
+
+    /**
+     * 検索結果の後（右）に出力する列数。
+     */
+    private int afterColumns;
+
+    /**
+     * 暗号化されたワークブックを開く際に使用するパスワード（パスワードを設定していない場合は {@code null}）。
      */
-    private boolean parallel;
+    private GrepExcelDecryptor decryptor;
 
     /**
      * 利用可能なExcelファイルの拡張子を取得します。
@@ -79,6 +327,15 @@ public class GrepExcel {
         return EXTENSIONS.clone();
     }
 
+    /**
+     * 利用可能なアーカイブファイルの拡張子を取得します。
+     *
+     * @return 利用可能なアーカイブファイルの拡張子
+     */
+    public static String[] availableArchiveExtensions() {
+        return ARCHIVE_EXTENSIONS.clone();
+    }
+
     /**
      * 大文字・小文字を区別しないかどうかを設定します。
      *
@@ -139,6 +396,31 @@ public class GrepExcel {
         return formulaResult;
     }
 
+    /**
+     * 数式セルの計算結果として、ファイルに保存されている値を使用するかどうかを設定します。
+     * <p>
+     * {@code true}の場合は数式を再計算しないため、依存関係の深い数式を含むファイルも高速に検索できますが、
+     * 保存時に計算されていない数式は空の値となります。
+     * {@code false}の場合はワークブック単位で計算結果をキャッシュしながら再計算し、
+     * 計算できない数式のみファイルに保存されている値を使用します。
+     *
+     * @param cachedFormulaResult ファイルに保存されている値を使用する場合は {@code true}
+     * @return 自身のインスタンス
+     */
+    public GrepExcel cachedFormulaResult(boolean cachedFormulaResult) {
+        this.cachedFormulaResult = cachedFormulaResult;
+        return this;
+    }
+
+    /**
+     * 数式セルの計算結果として、ファイルに保存されている値を使用するかどうかを取得します。
+     *
+     * @return ファイルに保存されている値を使用する場合は {@code true}
+     */
+    public boolean cachedFormulaResult() {
+        return cachedFormulaResult;
+    }
+
     /**
      * ディレクトリを再帰的に検索するかどうかを設定します。
      *
@@ -161,183 +443,1577 @@ public class GrepExcel {
 
     /**
      * 検索処理を並列実行するかどうかを設定します。
+     * <p>
+     * {@link #executionMode(GrepExcelExecutionMode)}に{@link GrepExcelExecutionMode#PARALLEL}、
+     * または{@link GrepExcelExecutionMode#SEQUENTIAL}を設定します。
      *
      * @param parallel 検索処理を並列実行する場合は {@code true}
      * @return 自身のインスタンス
      */
     public GrepExcel parallel(boolean parallel) {
-        this.parallel = parallel;
-        return this;
+        return executionMode(parallel ? GrepExcelExecutionMode.PARALLEL : GrepExcelExecutionMode.SEQUENTIAL);
     }
 
     /**
      * 検索処理を並列実行するかどうかを取得します。
      *
-     * @return 検索処理を並列実行する場合は {@code true}
+     * @return 実行方法が{@link GrepExcelExecutionMode#PARALLEL}の場合は {@code true}
      */
     public boolean parallel() {
-        return parallel;
+        return executionMode == GrepExcelExecutionMode.PARALLEL;
     }
 
     /**
-     * Excelファイル内の文字列を検索します。
+     * 検索処理の実行方法を設定します。
+     * <p>
+     * {@link GrepExcelExecutionMode#AUTO}の場合は、検索対象のファイル数・ファイルサイズ・ヒープの空き容量・CPU数から
+     * 並列度を決定し、ワークブック全体を読み込むとヒープが不足するOOXML形式のファイルはストリームで読み込みます。
+     * ストリームで読み込むのは、数式を再計算しない場合の{@link #grep(String, Path...)}のみです。
+     * ZIPファイルは、エントリを1ファイルとして並列度を決定します。
+     * 決定内容は情報ログ（標準エラー出力）に出力します。
      *
-     * @param patternText 検索パターン
-     * @param paths       検索対象のファイル・ディレクトリパス
-     * @return Excelファイル検索結果（全体）
+     * @param executionMode 検索処理の実行方法
+     * @return 自身のインスタンス
      */
-    public GrepExcelResultSummary grep(String patternText, Path... paths) {
-        LOG.debug("fields: {}", this);
-        LOG.debug("patternText: {}", patternText);
-        LOG.debug("paths: {}", Arrays.toString(paths));
+    public GrepExcel executionMode(GrepExcelExecutionMode executionMode) {
+        this.executionMode = Objects.requireNonNull(executionMode);
+        return this;
+    }
 
-        Pattern pattern = Pattern.compile(patternText,
-                Pattern.MULTILINE
-                        | Pattern.DOTALL
-                        | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0x00)
-                        | (literal ? Pattern.LITERAL : 0x00));
+    /**
+     * 検索処理の実行方法を取得します。
+     *
+     * @return 検索処理の実行方法
+     */
+    public GrepExcelExecutionMode executionMode() {
+        return executionMode;
+    }
 
-        GrepExcelResultSummary summary = new GrepExcelResultSummary(parallel);
-        Stream<Path> stream = Stream.of(getExcelFiles(paths));
-        if (parallel) {
-            stream = stream.parallel();
-        }
-        stream.forEach(file -> summary.resultFileList.add(new GrepExcelResultFile(file, grep(pattern, file))));
-        summary.resultFileList.sort((o1, o2) -> o1.file.compareTo(o2.file));
+    /**
+     * アーカイブファイル内のExcelファイルを検索するかどうかを設定します。
+     * <p>
+     * アーカイブファイル内のExcelファイルは一時ファイルに展開せずに読み込みます。
+     * ZIPファイル内のExcelファイルは、検索処理を並列実行する場合は並列に検索します。
+     * アーカイブファイル内のアーカイブファイルも検索対象となります。
+     *
+     * @param archive アーカイブファイル内のExcelファイルを検索する場合は {@code true}
+     * @return 自身のインスタンス
+     */
+    public GrepExcel archive(boolean archive) {
+        this.archive = archive;
+        return this;
+    }
 
-        return summary;
+    /**
+     * アーカイブファイル内のExcelファイルを検索するかどうかを取得します。
+     *
+     * @return アーカイブファイル内のExcelファイルを検索する場合は {@code true}
+     */
+    public boolean archive() {
+        return archive;
     }
 
     /**
-     * Excelファイル内の文字列を検索します。
+     * 検索対象とするワークシート名をワイルドカード（{@code *}, {@code ?}）で設定します。
+     * <p>
+     * 複数指定した場合は、いずれかに一致するワークシートが検索対象となります。
      *
-     * @param pattern コンパイルされた検索パターン
-     * @param file    検索対象のファイルパス
-     * @return Excelファイル検索結果（ファイル）
+     * @param sheetNames 検索対象とするワークシート名（指定しない場合は全てのワークシート）
+     * @return 自身のインスタンス
      */
-    private List<GrepExcelResult> grep(Pattern pattern, Path file) {
-        try (Workbook book = WorkbookFactory.create(Files.newInputStream(file))) {
-            return grep(pattern, file, book);
-        } catch (InvalidFormatException e) {
-            throw new RuntimeException(file.toString(), e);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    public GrepExcel sheetName(String... sheetNames) {
+        this.sheetNamePattern = sheetNames.length > 0
+                ? Pattern.compile(Stream.of(sheetNames).map(this::toGlobRegex).collect(Collectors.joining("|")))
+                : null;
+        return this;
+    }
+
+    /**
+     * 検索対象とするワークシート名を正規表現で設定します。
+     *
+     * @param sheetNamePattern 検索対象とするワークシート名の正規表現（{@code null}の場合は全てのワークシート）
+     * @return 自身のインスタンス
+     */
+    public GrepExcel sheetNamePattern(String sheetNamePattern) {
+        this.sheetNamePattern = sheetNamePattern != null ? Pattern.compile(sheetNamePattern) : null;
+        return this;
+    }
+
+    /**
+     * 検索対象とするワークシート名のパターンを取得します。
+     *
+     * @return 検索対象とするワークシート名のパターン（全てのワークシートが対象の場合は {@code null}）
+     */
+    public Pattern sheetNamePattern() {
+        return sheetNamePattern;
+    }
+
+    /**
+     * 検索対象とするセル範囲を設定します。
+     * <p>
+     * {@code A1:F100}のようなセル範囲のほか、列のみ（{@code A:F}）、行のみ（{@code 1:100}）、
+     * 単一のセル（{@code B2}）を指定できます。省略した行・列は、最初または最後までとなります。
+     *
+     * @param range 検索対象とするセル範囲（{@code null}の場合は全てのセル）
+     * @return 自身のインスタンス
+     * @throws IllegalArgumentException セル範囲の書式が正しくない場合
+     */
+    public GrepExcel range(String range) {
+        if (range == null) {
+            this.range = null;
+            this.firstRow = 0;
+            this.lastRow = -1;
+            this.firstColumn = 0;
+            this.lastColumn = -1;
+            return this;
+        }
+
+        Matcher matcher = RANGE_PATTERN.matcher(range);
+        if (range.isEmpty() || !matcher.matches()) {
+            throw new IllegalArgumentException("Invalid range \"" + range + "\"");
+        }
+        boolean single = matcher.group(3) == null;
+        int firstRow = toRowIndex(matcher.group(2), 0);
+        int lastRow = toRowIndex(single ? matcher.group(2) : matcher.group(4), -1);
+        int firstColumn = toColumnIndex(matcher.group(1), 0);
+        int lastColumn = toColumnIndex(single ? matcher.group(1) : matcher.group(3), -1);
+        if ((lastRow >= 0 && firstRow > lastRow) || (lastColumn >= 0 && firstColumn > lastColumn)) {
+            throw new IllegalArgumentException("Invalid range \"" + range + "\"");
         }
+
+        this.range = range;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.firstColumn = firstColumn;
+        this.lastColumn = lastColumn;
+        return this;
     }
 
     /**
-     * Excelファイル内の文字列を検索します。
+     * 検索対象とするセル範囲を取得します。
      *
-     * @param pattern コンパイルされた検索パターン
-     * @param file    検索対象のファイルパス
-     * @param book    ワークブック
-     * @return Excelファイル検索結果（ワークブック）
+     * @return 検索対象とするセル範囲（全てのセルが対象の場合は {@code null}）
      */
-    private List<GrepExcelResult> grep(Pattern pattern, Path file, Workbook book) {
-        return toStream(book.sheetIterator(), book.getNumberOfSheets())
-                .flatMap(sheet -> grep(pattern, file, sheet).stream())
-                .collect(Collectors.toList());
+    public String range() {
+        return range;
     }
 
     /**
-     * Excelファイル内の文字列を検索します。
+     * 検索対象とするセルの種類を設定します。
      *
-     * @param pattern コンパイルされた検索パターン
-     * @param file    検索対象のファイルパス
-     * @param sheet   ワークシート
-     * @return Excelファイル検索結果（ワークシート）
+     * @param cellTypes 検索対象とするセルの種類（指定しない場合は全ての種類）
+     * @return 自身のインスタンス
      */
-    private List<GrepExcelResult> grep(Pattern pattern, Path file, Sheet sheet) {
-        return toStream(sheet.rowIterator())
-                .flatMap(row -> grep(pattern, file, sheet, row).stream())
-                .collect(Collectors.toList());
+    public GrepExcel cellTypes(GrepExcelCellType... cellTypes) {
+        this.cellTypes.clear();
+        this.cellTypes.addAll(Arrays.asList(cellTypes));
+        return this;
     }
 
     /**
-     * Excelファイル内の文字列を検索します。
+     * 検索対象とするセルの種類を取得します。
      *
-     * @param pattern コンパイルされた検索パターン
-     * @param file    検索対象のファイルパス
-     * @param sheet   ワークシート
-     * @param row     行
-     * @return Excelファイル検索結果（行）
+     * @return 検索対象とするセルの種類（全ての種類が対象の場合は空）
      */
-    private List<GrepExcelResult> grep(Pattern pattern, Path file, Sheet sheet, Row row) {
-        List<GrepExcelResult> list = new ArrayList<>();
-        for (Iterator<Cell> itr = row.cellIterator(); itr.hasNext(); ) {
-            Cell cell = itr.next();
+    public Set<GrepExcelCellType> cellTypes() {
+        return EnumSet.copyOf(cellTypes);
+    }
 
-            if (cell.getCellType() == Cell.CELL_TYPE_BLANK) {
-                continue;
-            }
+    /**
+     * 検索結果の前に出力する行数を設定します。
+     * <p>
+     * 前後の行・列のセルは、検索結果の{@link GrepExcelResult#contextList}に設定されます。
+     * 前後のセルはワークシートの走査中に収集するため、ワークシートを再度読み込むことはありません。
+     *
+     * @param beforeRows 検索結果の前に出力する行数（ワークシートの最大行数を上限とします）
+     * @return 自身のインスタンス
+     * @throws IllegalArgumentException 負の値を指定した場合
+     */
+    public GrepExcel beforeRows(int beforeRows) {
+        this.beforeRows = Math.min(requireNonNegative(beforeRows, "beforeRows"), SpreadsheetVersion.EXCEL2007.getMaxRows());
+        return this;
+    }
 
-            String cellAddress = cell.getAddress().toString();
-            String cellValue = toStringValue(cell);
+    /**
+     * 検索結果の前に出力する行数を取得します。
+     *
+     * @return 検索結果の前に出力する行数
+     */
+    public int beforeRows() {
+        return beforeRows;
+    }
 
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("file: {}, sheet: {}, cell: {}, value: {}",
-                        file.getFileName(), sheet.getSheetName(), cellAddress, cellValue);
-            }
+    /**
+     * 検索結果の後に出力する行数を設定します。
+     *
+     * @param afterRows 検索結果の後に出力する行数（ワークシートの最大行数を上限とします）
+     * @return 自身のインスタンス
+     * @throws IllegalArgumentException 負の値を指定した場合
+     */
+    public GrepExcel afterRows(int afterRows) {
+        this.afterRows = Math.min(requireNonNegative(afterRows, "afterRows"), SpreadsheetVersion.EXCEL2007.getMaxRows());
+        return this;
+    }
 
-            if (pattern.matcher(cellValue).find()) {
-                list.add(new GrepExcelResult(
-                        file.toString(), sheet.getSheetName(), cellAddress, cellValue));
-            }
-        }
-        return list;
+    /**
+     * 検索結果の後に出力する行数を取得します。
+     *
+     * @return 検索結果の後に出力する行数
+     */
+    public int afterRows() {
+        return afterRows;
     }
 
     /**
-     * セルの値を文字列で取得します。
+     * 検索結果の前（左）に出力する列数を設定します。
      *
-     * @param cell セル
-     * @return セルの文字列値
+     * @param beforeColumns 検索結果の前（左）に出力する列数（ワークシートの最大列数を上限とします）
+     * @return 自身のインスタンス
+     * @throws IllegalArgumentException 負の値を指定した場合
      */
-    private String toStringValue(Cell cell) {
-        if (cell.getCellType() == Cell.CELL_TYPE_FORMULA && !formulaResult) {
-            return "=" + cell.getCellFormula();
-        }
+    public GrepExcel beforeColumns(int beforeColumns) {
+        this.beforeColumns = Math.min(requireNonNegative(beforeColumns, "beforeColumns"), SpreadsheetVersion.EXCEL2007.getMaxColumns());
+        return this;
+    }
 
-        try {
-            return formatter.formatAsString(cell);
-        } catch (Exception e) {
-            return cell.toString();
-        }
+    /**
+     * 検索結果の前（左）に出力する列数を取得します。
+     *
+     * @return 検索結果の前（左）に出力する列数
+     */
+    public int beforeColumns() {
+        return beforeColumns;
     }
 
     /**
-     * 指定したファイル・ディレクトリパスから、Excelファイルのパスを取得します。
+     * 検索結果の後（右）に出力する列数を設定します。
      *
-     * @param paths ファイル・ディレクトリパス
-     * @return Excelファイルのパス
+     * @param afterColumns 検索結果の後（右）に出力する列数（ワークシートの最大列数を上限とします）
+     * @return 自身のインスタンス
+     * @throws IllegalArgumentException 負の値を指定した場合
      */
-    private Path[] getExcelFiles(Path... paths) {
-        return Stream.of(paths)
-                .flatMap(p -> {
-                    try {
-                        return Files.walk(p, recursive ? Integer.MAX_VALUE : 1, FileVisitOption.FOLLOW_LINKS);
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                })
-                .filter(this::isExcelFile)
-                .map(path -> path.toAbsolutePath().normalize())
-                .toArray(Path[]::new);
+    public GrepExcel afterColumns(int afterColumns) {
+        this.afterColumns = Math.min(requireNonNegative(afterColumns, "afterColumns"), SpreadsheetVersion.EXCEL2007.getMaxColumns());
+        return this;
     }
 
     /**
-     * Excelファイルかどうかを取得します。
+     * 検索結果の後（右）に出力する列数を取得します。
      *
-     * @param path ファイル・ディレクトリパス
-     * @return Excelファイルの場合は {@code true}
+     * @return 検索結果の後（右）に出力する列数
      */
-    private boolean isExcelFile(Path path) {
-        if (!Files.isRegularFile(path)) {
-            return false;
-        }
-        String fileName = path.toAbsolutePath().normalize().getFileName().toString();
-        int idx = fileName.lastIndexOf(".");
-        return idx >= 0 && Arrays.asList(EXTENSIONS).contains(fileName.substring(idx + 1));
+    public int afterColumns() {
+        return afterColumns;
+    }
+
+    /**
+     * 暗号化されたワークブックを開く際に使用するパスワードを設定します。
+     * <p>
+     * 暗号化されたワークブックは、最後に復号できたパスワードから順に試行して開きます。
+     * パスワードの検証で導出した鍵は、このインスタンスでパスワード・暗号化情報の組み合わせごとに保持します。
+     * いずれのパスワードでも開けないワークブックは、警告をログに出力して検索対象から除外します。
+     *
+     * @param passwords パスワード（指定しない場合は暗号化されたワークブックを検索しない）
+     * @return 自身のインスタンス
+     */
+    public GrepExcel passwords(String... passwords) {
+        this.decryptor = passwords.length > 0 ? new GrepExcelDecryptor(Arrays.asList(passwords)) : null;
+        return this;
+    }
+
+    /**
+     * 暗号化されたワークブックを開く際に使用するパスワードを取得します。
+     *
+     * @return パスワード
+     */
+    public List<String> passwords() {
+        return decryptor != null ? decryptor.passwords() : Collections.emptyList();
+    }
+
+    /**
+     * Excelファイル内の文字列を検索します。
+     *
+     * @param patternText 検索パターン
+     * @param paths       検索対象のファイル・ディレクトリパス
+     * @return Excelファイル検索結果（全体）
+     */
+    public GrepExcelResultSummary grep(String patternText, Path... paths) {
+        LogHolder.LOG.debug("fields: {}", this);
+        LogHolder.LOG.debug("patternText: {}", patternText);
+        LogHolder.LOG.debug("paths: {}", Arrays.toString(paths));
+
+        Pattern pattern = Pattern.compile(patternText, patternFlags());
+        return search((filePath, sheet, evaluator, resultList) ->
+                grep(pattern, filePath, sheet, evaluator, resultList), isStreamable() ? pattern : null, paths);
+    }
+
+    /**
+     * Excelファイル内の、クエリの条件を満たす行を検索します。
+     * <p>
+     * ワークシートは1回だけ走査し、行ごとにクエリの条件を評価します。
+     * セルの値は条件の評価に必要な列のみ取得し、条件を満たす行は検索対象のセル範囲に含まれる全てのセルを検索結果とします。
+     * クエリで参照する列は、検索対象のセル範囲外の列でも構いません。
+     * 検索対象とするセルの種類を設定した場合、その他の種類のセルは空のセルとして扱います。
+     * 前後のセル（コンテキスト）の設定は使用しません。
+     * <pre>
+     * B =~ /foo/ &amp;&amp; (D =~ /bar/ || E !~ /^[0-9]+$/)
+     * </pre>
+     * {@code 列 =~ /正規表現/}（一致する）、{@code 列 !~ /正規表現/}（一致しない）の条件を、
+     * {@code &&}, {@code ||}, {@code !}, {@code ( )}で組み合わせて記述します。
+     * 正規表現には、大文字・小文字の区別、リテラル構文解析の設定が適用されます。
+     *
+     * @param queryText クエリ
+     * @param paths     検索対象のファイル・ディレクトリパス
+     * @return Excelファイル検索結果（全体）
+     * @throws IllegalArgumentException クエリの書式が正しくない場合
+     */
+    public GrepExcelResultSummary query(String queryText, Path... paths) {
+        LogHolder.LOG.debug("fields: {}", this);
+        LogHolder.LOG.debug("queryText: {}", queryText);
+        LogHolder.LOG.debug("paths: {}", Arrays.toString(paths));
+
+        GrepExcelQuery query = new GrepExcelQuery(queryText, patternFlags());
+        return search((filePath, sheet, evaluator, resultList) ->
+                query(query, filePath, sheet, evaluator, resultList), null, paths);
+    }
+
+    /**
+     * クエリの書式を、検索を実行せずに確認します。
+     * <p>
+     * {@link #query(String, Path...)}と同じく、大文字・小文字の区別、リテラル構文解析の設定を適用して解析します。
+     *
+     * @param queryText クエリ
+     * @throws IllegalArgumentException クエリの書式が正しくない場合
+     */
+    public void validateQuery(String queryText) {
+        new GrepExcelQuery(queryText, patternFlags());
+    }
+
+    /**
+     * 2つの版のExcelファイルを比較し、追加・変更されたセルの中から文字列を検索します。
+     * <p>
+     * 新しい版のセルの文字列値を、古い版の同じワークシート名・同じアドレスのセルの文字列値と比較し、
+     * 異なるセル（古い版に存在しないセルを含む）のみ検索パターンと照合します。
+     * 削除されたセル、古い版にのみ存在するファイル・ワークシートは検索対象となりません。
+     * ディレクトリを指定した場合は、新しい版のディレクトリ内の各Excelファイルを、
+     * 古い版のディレクトリ内の同じ相対パスのExcelファイルと比較します
+     * （新しい版にファイル、古い版にディレクトリを指定した場合は、ディレクトリ内の同じ名前のファイルと比較します）。
+     * アーカイブファイル内のExcelファイル、前後のセル（コンテキスト）の設定は使用しません。
+     * <p>
+     * 内容が同一のファイルはワークブックを読み込まずに、
+     * 値・書式が同一のセルは文字列値に変換せずに、比較対象から除外します。
+     * OOXML形式のファイルは、2つの版をストリームで並行して読み込み、ワークシートのパーツが同一の
+     * （共有文字列・スタイルは追加のみの）ワークシートは、セルを読み込まずに比較対象から除外します。
+     * 数式を再計算する場合は、ワークブック全体を読み込んで比較します。
+     *
+     * @param patternText 検索パターン
+     * @param oldPath     古い版のファイル・ディレクトリパス
+     * @param newPath     新しい版のファイル・ディレクトリパス
+     * @return Excelファイル検索結果（全体、ファイルパスは新しい版のパス）
+     */
+    public GrepExcelResultSummary diff(String patternText, Path oldPath, Path newPath) {
+        LogHolder.LOG.debug("fields: {}", this);
+        LogHolder.LOG.debug("patternText: {}", patternText);
+        LogHolder.LOG.debug("oldPath: {}, newPath: {}", oldPath, newPath);
+
+        Pattern pattern = Pattern.compile(patternText, patternFlags());
+        Path oldBase = oldPath.toAbsolutePath().normalize();
+        Path newBase = newPath.toAbsolutePath().normalize();
+
+        Path[] files = Files.isDirectory(newBase)
+                ? Stream.of(getExcelFiles(newBase)).filter(this::isExcelFile).sorted().toArray(Path[]::new)
+                : new Path[]{newBase};
+        GrepExcelExecutionPlan plan = GrepExcelExecutionPlan.create(executionMode, files, false);
+        GrepExcelResultFile[] results = new GrepExcelResultFile[files.length];
+        plan.forEach(files.length, i -> {
+            Path file = files[i];
+            Path oldFile = Files.isDirectory(newBase)
+                    ? oldBase.resolve(newBase.relativize(file))
+                    : Files.isDirectory(oldBase) ? oldBase.resolve(file.getFileName()) : oldBase;
+            results[i] = new GrepExcelResultFile(file, file.toString(), diff(pattern, oldFile, file));
+        });
+
+        return new GrepExcelResultSummary(results);
+    }
+
+    /**
+     * 検索パターンのフラグを取得します。
+     *
+     * @return 検索パターンのフラグ
+     */
+    private int patternFlags() {
+        return Pattern.MULTILINE
+                | Pattern.DOTALL
+                | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0x00)
+                | (literal ? Pattern.LITERAL : 0x00);
+    }
+
+    /**
+     * ストリームで読み込んで検索できる設定かどうかを取得します。
+     * <p>
+     * ストリームで読み込む場合はワークシート全体を参照できないため、数式の再計算は行えません。
+     * 前後のセルは、行の順に読み込みながら{@link GrepExcelContextBuffer}で収集します。
+     *
+     * @return ストリームで読み込んで検索できる場合は {@code true}
+     */
+    private boolean isStreamable() {
+        return !formulaResult || cachedFormulaResult;
+    }
+
+    /**
+     * 指定したファイル・ディレクトリパスのExcelファイルを検索します。
+     * <p>
+     * 検索対象のファイルをパスの順に並べ、各ファイルの検索結果をファイルのインデックスごとの格納先に保持します。
+     * 並列実行する場合も格納先を共有しないため排他制御は不要で、検索後に格納先の順に連結するだけで
+     * パスの順に並んだ検索結果となります。
+     *
+     * @param searcher         ワークシートの検索処理
+     * @param streamingPattern ストリームで読み込む場合の検索パターン（ストリームで読み込めない場合は {@code null}）
+     * @param paths            検索対象のファイル・ディレクトリパス
+     * @return Excelファイル検索結果（全体）
+     */
+    private GrepExcelResultSummary search(SheetSearcher searcher, Pattern streamingPattern, Path... paths) {
+        Path[] files = getExcelFiles(paths);
+        Arrays.sort(files);
+        GrepExcelExecutionPlan plan = GrepExcelExecutionPlan.create(executionMode, files, streamingPattern != null);
+        GrepExcelResultFile[][] results = new GrepExcelResultFile[files.length][];
+        plan.forEach(files.length, i -> results[i] = grepFile(searcher, streamingPattern, files[i], plan));
+        return new GrepExcelResultSummary(results);
+    }
+
+    /**
+     * Excelファイル・アーカイブファイル内の文字列を検索します。
+     *
+     * @param searcher         ワークシートの検索処理
+     * @param streamingPattern ストリームで読み込む場合の検索パターン（ストリームで読み込めない場合は {@code null}）
+     * @param file             検索対象のファイルパス
+     * @param plan             実行計画
+     * @return Excelファイル検索結果（ファイル単位）の配列（アーカイブファイル内のファイルはパスの順）
+     */
+    private GrepExcelResultFile[] grepFile(SheetSearcher searcher, Pattern streamingPattern, Path file,
+                                           GrepExcelExecutionPlan plan) {
+        if (isArchiveFileName(file.getFileName().toString())) {
+            GrepExcelResultFile[] resultFiles = grepArchive(searcher, file, plan.parallel())
+                    .toArray(new GrepExcelResultFile[0]);
+            Arrays.sort(resultFiles, Comparator.comparing(rf -> rf.filePath));
+            return resultFiles;
+        }
+        GrepExcelResultList resultList = streamingPattern != null && plan.streaming(file)
+                ? grepStreaming(streamingPattern, file)
+                : grep(searcher, file);
+        return new GrepExcelResultFile[]{new GrepExcelResultFile(file, file.toString(), resultList)};
+    }
+
+    /**
+     * Excelファイル（OOXML形式）をストリームで読み込み、文字列を検索します。
+     * <p>
+     * 暗号化されたファイルは、ワークブック全体を読み込んで検索します。
+     * 共有数式は、基準となる数式の参照をセルの位置に合わせて移動した数式を検索します。
+     *
+     * @param pattern コンパイルされた検索パターン
+     * @param file    検索対象のファイルパス
+     * @return Excelファイル検索結果（ファイル）
+     */
+    GrepExcelResultList grepStreaming(Pattern pattern, Path file) {
+        SheetSearcher searcher = (fp, sheet, evaluator, resultList) -> grep(pattern, fp, sheet, evaluator, resultList);
+        String filePath = file.toString();
+        try {
+            if (isOle2(file)) {
+                return grep(searcher, file);
+            }
+            OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+            try {
+                GrepExcelResultList resultList = new GrepExcelResultList();
+                new GrepExcelStreamingReader(pkg).read(this::isTargetSheet,
+                        new StreamingSearcher(pattern, filePath, resultList));
+                return resultList;
+            } finally {
+                // 読み取り専用で開いたパッケージは、保存せずに閉じる
+                pkg.revert();
+            }
+        } catch (OpenXML4JException | SAXException e) {
+            throw new RuntimeException(filePath, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Excelファイル内の文字列を検索します。
+     *
+     * @param searcher ワークシートの検索処理
+     * @param file     検索対象のファイルパス
+     * @return Excelファイル検索結果（ファイル）
+     */
+    private GrepExcelResultList grep(SheetSearcher searcher, Path file) {
+        try (Workbook book = openWorkbook(file)) {
+            return grep(searcher, file.toString(), book);
+        } catch (EncryptedDocumentException e) {
+            LogHolder.LOG.warn("skipped encrypted file: {} ({})", file, e.getMessage());
+            return new GrepExcelResultList();
+        } catch (InvalidFormatException e) {
+            throw new RuntimeException(file.toString(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 入力ストリームから読み込んだExcelファイル内の文字列を検索します。
+     *
+     * @param searcher ワークシートの検索処理
+     * @param filePath 検索対象のファイルパス
+     * @param in       Excelファイルの入力ストリーム（クローズしません）
+     * @return Excelファイル検索結果（ファイル）
+     */
+    private GrepExcelResultList grep(SheetSearcher searcher, String filePath, InputStream in) {
+        try (Workbook book = openWorkbook(closeShield(in))) {
+            return grep(searcher, filePath, book);
+        } catch (EncryptedDocumentException e) {
+            LogHolder.LOG.warn("skipped encrypted file: {} ({})", filePath, e.getMessage());
+            return new GrepExcelResultList();
+        } catch (InvalidFormatException e) {
+            throw new RuntimeException(filePath, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 2つの版のExcelファイルを比較し、追加・変更されたセルの中から文字列を検索します。
+     *
+     * @param pattern コンパイルされた検索パターン
+     * @param oldFile 古い版のファイルパス
+     * @param newFile 新しい版のファイルパス
+     * @return Excelファイル検索結果（ファイル）
+     */
+    private GrepExcelResultList diff(Pattern pattern, Path oldFile, Path newFile) {
+        if (!Files.isRegularFile(oldFile)) {
+            LogHolder.LOG.debug("added file: {}", newFile);
+            return grep((filePath, sheet, evaluator, resultList) ->
+                    grep(pattern, filePath, sheet, evaluator, resultList), newFile);
+        }
+        try {
+            if (isSameContent(oldFile, newFile)) {
+                LogHolder.LOG.debug("unchanged file: {}", newFile);
+                return new GrepExcelResultList();
+            }
+            if (isStreamable() && !isOle2(oldFile) && !isOle2(newFile)) {
+                return diffStreaming(pattern, oldFile, newFile);
+            }
+            try (Workbook oldBook = openWorkbook(oldFile);
+                 Workbook newBook = openWorkbook(newFile)) {
+                FormulaEvaluator oldEvaluator = createFormulaEvaluator(oldBook);
+                FormulaEvaluator newEvaluator = createFormulaEvaluator(newBook);
+                GrepExcelResultList resultList = new GrepExcelResultList();
+                toStream(newBook.sheetIterator(), newBook.getNumberOfSheets())
+                        .filter(sheet -> isTargetSheet(sheet.getSheetName()))
+                        .forEach(sheet -> {
+                            Sheet oldSheet = oldBook.getSheet(sheet.getSheetName());
+                            if (oldSheet == null) {
+                                grep(pattern, newFile.toString(), sheet, newEvaluator, resultList);
+                            } else {
+                                diff(pattern, newFile.toString(), oldSheet, oldEvaluator, sheet, newEvaluator,
+                                        resultList);
+                            }
+                        });
+                return resultList;
+            }
+        } catch (EncryptedDocumentException e) {
+            LogHolder.LOG.warn("skipped encrypted file: {} ({})", newFile, e.getMessage());
+            return new GrepExcelResultList();
+        } catch (OpenXML4JException | SAXException e) {
+            throw new RuntimeException(newFile.toString(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 2つの版のExcelファイル（OOXML形式）をストリームで並行して読み込み、
+     * 追加・変更されたセルの中から文字列を検索します。
+     * <p>
+     * ワークシートのパーツ（ZIPのエントリのCRC-32・サイズ）が一致し、共有文字列・スタイルが追加のみの場合は、
+     * ワークシートのセルを読み込まずに比較対象から除外します。変更されたワークシートは1回のみ読み込みます。
+     *
+     * @param pattern コンパイルされた検索パターン
+     * @param oldFile 古い版のファイルパス
+     * @param newFile 新しい版のファイルパス
+     * @return Excelファイル検索結果（ファイル）
+     * @throws IOException                                  入出力エラーが発生した場合
+     * @throws OpenXML4JException                           パッケージの形式が正しくない場合
+     * @throws SAXException                                 XMLの解析に失敗した場合
+     */
+    private GrepExcelResultList diffStreaming(Pattern pattern, Path oldFile, Path newFile)
+            throws IOException, OpenXML4JException, SAXException {
+        String filePath = newFile.toString();
+        OPCPackage oldPkg = OPCPackage.open(oldFile.toFile(), PackageAccess.READ);
+        try {
+            OPCPackage newPkg = OPCPackage.open(newFile.toFile(), PackageAccess.READ);
+            try {
+                GrepExcelStreamingReader oldReader = new GrepExcelStreamingReader(oldPkg);
+                GrepExcelStreamingReader newReader = new GrepExcelStreamingReader(newPkg);
+                List<String> oldSheetNames = oldReader.getSheetNames();
+                boolean compatible = newReader.isCompatibleWith(oldReader);
+                GrepExcelResultList resultList = new GrepExcelResultList();
+                for (String sheetName : newReader.getSheetNames()) {
+                    if (!isTargetSheet(sheetName)) {
+                        continue;
+                    }
+                    if (!oldSheetNames.contains(sheetName)) {
+                        newReader.read(sheetName, new StreamingSearcher(pattern, filePath, resultList));
+                        continue;
+                    }
+                    if (compatible && newReader.isSameSheetPart(oldReader, sheetName)) {
+                        LogHolder.LOG.debug("unchanged sheet: {}, sheet: {}", filePath, sheetName);
+                        continue;
+                    }
+                    int locationId = resultList.locationId(filePath, sheetName);
+                    try (GrepExcelStreamingReader.SheetCursor oldRows = oldReader.openCursor(sheetName)) {
+                        newReader.read(sheetName, (name, rowIndex, cells) ->
+                                diff(pattern, filePath, sheetName, locationId, oldRows, rowIndex, cells, resultList));
+                    }
+                }
+                return resultList;
+            } finally {
+                // 読み取り専用で開いたパッケージは、保存せずに閉じる
+                newPkg.revert();
+            }
+        } finally {
+            oldPkg.revert();
+        }
+    }
+
+    /**
+     * OLE2形式（.xls形式・暗号化されたファイル）のファイルかどうかを取得します。
+     *
+     * @param file ファイルパス
+     * @return OLE2形式のファイルの場合は {@code true}
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static boolean isOle2(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return NPOIFSFileSystem.hasPOIFSHeader(in);
+        }
+    }
+
+    /**
+     * ワークブックを開きます。
+     * <p>
+     * パスワードを設定した場合、OLE2形式のファイルは暗号化を考慮して開きます。
+     *
+     * @param file Excelファイルのパス
+     * @return ワークブック
+     * @throws IOException                入出力エラーが発生した場合
+     * @throws InvalidFormatException     ファイルの形式が正しくない場合
+     * @throws EncryptedDocumentException 暗号化されたワークブックを開けない場合
+     */
+    private Workbook openWorkbook(Path file) throws IOException, InvalidFormatException {
+        if (decryptor == null) {
+            return WorkbookFactory.create(file.toFile(), null, true);
+        }
+        if (!isOle2(file)) {
+            return WorkbookFactory.create(file.toFile(), null, true);
+        }
+        try (NPOIFSFileSystem fs = new NPOIFSFileSystem(file.toFile(), true)) {
+            return decryptor.open(fs);
+        }
+    }
+
+    /**
+     * 入力ストリームからワークブックを開きます。
+     *
+     * @param in Excelファイルの入力ストリーム
+     * @return ワークブック
+     * @throws IOException                入出力エラーが発生した場合
+     * @throws InvalidFormatException     ファイルの形式が正しくない場合
+     * @throws EncryptedDocumentException 暗号化されたワークブックを開けない場合
+     */
+    private Workbook openWorkbook(InputStream in) throws IOException, InvalidFormatException {
+        InputStream buffered = new BufferedInputStream(in);
+        if (decryptor == null || !NPOIFSFileSystem.hasPOIFSHeader(buffered)) {
+            return WorkbookFactory.create(buffered);
+        }
+        try (NPOIFSFileSystem fs = new NPOIFSFileSystem(buffered)) {
+            return decryptor.open(fs);
+        }
+    }
+
+    /**
+     * アーカイブファイル内のExcelファイルの文字列を検索します。
+     *
+     * @param searcher ワークシートの検索処理
+     * @param file     検索対象のアーカイブファイルのパス
+     * @param parallel ZIPファイル内のExcelファイルを並列に検索する場合は {@code true}
+     * @return Excelファイル検索結果（ファイル単位）のリスト
+     */
+    private List<GrepExcelResultFile> grepArchive(SheetSearcher searcher, Path file, boolean parallel) {
+        String fileName = file.getFileName().toString();
+        try {
+            if (fileName.endsWith(".zip")) {
+                // ZIPファイルはエントリ単位に読み込めるため、エントリごとに検索処理を実行する
+                try (ZipFile zip = new ZipFile(file.toFile())) {
+                    Stream<ZipArchiveEntry> entries = Collections.list(zip.getEntries()).stream()
+                            .filter(entry -> !entry.isDirectory() && isTargetEntryName(entry.getName()));
+                    if (parallel) {
+                        entries = entries.parallel();
+                    }
+                    return entries
+                            .flatMap(entry -> {
+                                try (InputStream in = zip.getInputStream(entry)) {
+                                    return grepArchiveEntry(searcher, file, file + "!/" + entry.getName(), in).stream();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            })
+                            .collect(Collectors.toList());
+                }
+            }
+            try (ArchiveInputStream in = openArchive(fileName, Files.newInputStream(file))) {
+                return grepArchive(searcher, file, file.toString(), in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * アーカイブの入力ストリームから、順にエントリを読み込んで文字列を検索します。
+     *
+     * @param searcher    ワークシートの検索処理
+     * @param file        検索対象のアーカイブファイルのパス
+     * @param archivePath アーカイブのパス（ネストしたアーカイブの場合は {@code outer.zip!/inner.zip}）
+     * @param in          アーカイブの入力ストリーム
+     * @return Excelファイル検索結果（ファイル単位）のリスト
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private List<GrepExcelResultFile> grepArchive(SheetSearcher searcher, Path file, String archivePath,
+                                                  ArchiveInputStream in) throws IOException {
+        List<GrepExcelResultFile> list = new ArrayList<>();
+        for (ArchiveEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+            if (!entry.isDirectory() && isTargetEntryName(entry.getName())) {
+                list.addAll(grepArchiveEntry(searcher, file, archivePath + "!/" + entry.getName(), in));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * アーカイブのエントリ（Excelファイル、またはネストしたアーカイブ）内の文字列を検索します。
+     *
+     * @param searcher  ワークシートの検索処理
+     * @param file      検索対象のアーカイブファイルのパス
+     * @param entryPath エントリのパス（{@code archive!/inner/path.xlsx}）
+     * @param in        エントリの入力ストリーム（クローズしません）
+     * @return Excelファイル検索結果（ファイル単位）のリスト
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private List<GrepExcelResultFile> grepArchiveEntry(SheetSearcher searcher, Path file, String entryPath,
+                                                       InputStream in) throws IOException {
+        if (isExcelFileName(entryPath)) {
+            return Collections.singletonList(
+                    new GrepExcelResultFile(file, entryPath, grep(searcher, entryPath, in)));
+        }
+        try (ArchiveInputStream nested = openArchive(entryPath, closeShield(in))) {
+            return grepArchive(searcher, file, entryPath, nested);
+        }
+    }
+
+    /**
+     * アーカイブの入力ストリームを開きます。
+     *
+     * @param fileName アーカイブのファイル名
+     * @param in       アーカイブファイルの入力ストリーム
+     * @return アーカイブの入力ストリーム
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private ArchiveInputStream openArchive(String fileName, InputStream in) throws IOException {
+        InputStream buffered = new BufferedInputStream(in);
+        if (fileName.endsWith(".zip")) {
+            return new ZipArchiveInputStream(buffered);
+        }
+        if (fileName.endsWith(".tar")) {
+            return new TarArchiveInputStream(buffered);
+        }
+        return new TarArchiveInputStream(new GzipCompressorInputStream(buffered));
+    }
+
+    /**
+     * クローズしても元の入力ストリームをクローズしない入力ストリームを取得します。
+     *
+     * @param in 入力ストリーム
+     * @return クローズしても元の入力ストリームをクローズしない入力ストリーム
+     */
+    private InputStream closeShield(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Excelファイル内の文字列を検索します。
+     *
+     * @param searcher ワークシートの検索処理
+     * @param filePath 検索対象のファイルパス
+     * @param book     ワークブック
+     * @return Excelファイル検索結果（ワークブック）
+     */
+    private GrepExcelResultList grep(SheetSearcher searcher, String filePath, Workbook book) {
+        FormulaEvaluator evaluator = createFormulaEvaluator(book);
+        GrepExcelResultList resultList = new GrepExcelResultList();
+        toStream(book.sheetIterator(), book.getNumberOfSheets())
+                .filter(sheet -> isTargetSheet(sheet.getSheetName()))
+                .forEach(sheet -> searcher.search(filePath, sheet, evaluator, resultList));
+        return resultList;
+    }
+
+    /**
+     * Excelファイル内の文字列を検索します。
+     *
+     * @param pattern    コンパイルされた検索パターン
+     * @param filePath   検索対象のファイルパス
+     * @param sheet      ワークシート
+     * @param evaluator  数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param resultList 検索結果の追加先
+     */
+    private void grep(Pattern pattern, String filePath, Sheet sheet, FormulaEvaluator evaluator,
+                      GrepExcelResultList resultList) {
+        int locationId = resultList.locationId(filePath, sheet.getSheetName());
+        if (beforeRows == 0 && afterRows == 0 && beforeColumns == 0 && afterColumns == 0) {
+            toRowStream(sheet, firstRow, lastRow)
+                    .forEach(row -> grep(pattern, filePath, sheet, row, evaluator, resultList, locationId));
+            return;
+        }
+
+        // 前後のセルを収集するため、検索対象のセル範囲の前後の行も走査する
+        GrepExcelContextBuffer buffer = new GrepExcelContextBuffer(beforeRows, afterRows, beforeColumns, afterColumns);
+        toRowStream(sheet, Math.max(0, firstRow - beforeRows), lastRow < 0 ? -1 : lastRow + afterRows)
+                .forEach(row -> grep(pattern, filePath, sheet, row, evaluator, resultList, locationId, buffer));
+    }
+
+    /**
+     * Excelファイル内の文字列を検索します。
+     *
+     * @param pattern    コンパイルされた検索パターン
+     * @param filePath   検索対象のファイルパス
+     * @param sheet      ワークシート
+     * @param row        行
+     * @param evaluator  数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param resultList 検索結果の追加先
+     * @param locationId 検索結果の追加先におけるファイルパス・ワークシート名の位置ID
+     */
+    private void grep(Pattern pattern, String filePath, Sheet sheet, Row row, FormulaEvaluator evaluator,
+                      GrepExcelResultList resultList, int locationId) {
+        for (Iterator<Cell> itr = toCellIterator(row, firstColumn, lastColumn); itr.hasNext(); ) {
+            Cell cell = itr.next();
+
+            if (cell.getCellType() == Cell.CELL_TYPE_BLANK || !isTargetCellType(cell.getCellType())) {
+                continue;
+            }
+
+            String cellValue = toStringValue(cell, evaluator);
+
+            if (LogHolder.LOG.isDebugEnabled()) {
+                LogHolder.LOG.debug("file: {}, sheet: {}, cell: {}, value: {}",
+                        filePath, sheet.getSheetName(), cell.getAddress(), cellValue);
+            }
+
+            if (pattern.matcher(cellValue).find()) {
+                resultList.add(locationId, cell.getRowIndex(), cell.getColumnIndex(), cellValue);
+            }
+        }
+    }
+
+    /**
+     * Excelファイル内の文字列を検索し、検索結果の前後のセルを収集します。
+     * <p>
+     * 前後の行・列のセルの値も取得しますが、検索パターンとの照合は検索対象のセル範囲・種類のセルのみ行います。
+     *
+     * @param pattern    コンパイルされた検索パターン
+     * @param filePath   検索対象のファイルパス
+     * @param sheet      ワークシート
+     * @param row        行
+     * @param evaluator  数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param resultList 検索結果の追加先
+     * @param locationId 検索結果の追加先におけるファイルパス・ワークシート名の位置ID
+     * @param buffer     前後のセルの収集に使用するバッファ
+     */
+    private void grep(Pattern pattern, String filePath, Sheet sheet, Row row, FormulaEvaluator evaluator,
+                      GrepExcelResultList resultList, int locationId, GrepExcelContextBuffer buffer) {
+        int rowIndex = row.getRowNum();
+        boolean targetRow = rowIndex >= firstRow && (lastRow < 0 || rowIndex <= lastRow);
+        SortedMap<Integer, String> values = new TreeMap<>();
+        List<Integer> matchedColumns = new ArrayList<>();
+        for (Iterator<Cell> itr = toCellIterator(row, Math.max(0, firstColumn - beforeColumns),
+                lastColumn < 0 ? -1 : lastColumn + afterColumns); itr.hasNext(); ) {
+            Cell cell = itr.next();
+
+            if (cell.getCellType() == Cell.CELL_TYPE_BLANK) {
+                continue;
+            }
+
+            int columnIndex = cell.getColumnIndex();
+            String cellValue = toStringValue(cell, evaluator);
+            values.put(columnIndex, cellValue);
+
+            if (!targetRow
+                    || columnIndex < firstColumn || (lastColumn >= 0 && columnIndex > lastColumn)
+                    || !isTargetCellType(cell.getCellType())) {
+                continue;
+            }
+
+            if (LogHolder.LOG.isDebugEnabled()) {
+                LogHolder.LOG.debug("file: {}, sheet: {}, cell: {}, value: {}",
+                        filePath, sheet.getSheetName(), cell.getAddress(), cellValue);
+            }
+
+            if (pattern.matcher(cellValue).find()) {
+                matchedColumns.add(columnIndex);
+            }
+        }
+
+        buffer.startRow(rowIndex, values);
+        for (int columnIndex : matchedColumns) {
+            resultList.add(locationId, rowIndex, columnIndex, values.get(columnIndex));
+            resultList.setContext(resultList.size() - 1,
+                    buffer.capture(filePath, sheet.getSheetName(), rowIndex, columnIndex, values));
+        }
+        buffer.endRow(rowIndex, values);
+    }
+
+    /**
+     * Excelファイル内の、クエリの条件を満たす行を検索します。
+     *
+     * @param query      クエリ
+     * @param filePath   検索対象のファイルパス
+     * @param sheet      ワークシート
+     * @param evaluator  数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param resultList 検索結果の追加先
+     */
+    private void query(GrepExcelQuery query, String filePath, Sheet sheet, FormulaEvaluator evaluator,
+                       GrepExcelResultList resultList) {
+        int locationId = resultList.locationId(filePath, sheet.getSheetName());
+        toRowStream(sheet, firstRow, lastRow)
+                .forEach(row -> query(query, filePath, sheet, row, evaluator, resultList, locationId));
+    }
+
+    /**
+     * 行がクエリの条件を満たす場合は、行のセルを検索結果に追加します。
+     *
+     * @param query      クエリ
+     * @param filePath   検索対象のファイルパス
+     * @param sheet      ワークシート
+     * @param row        行
+     * @param evaluator  数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param resultList 検索結果の追加先
+     * @param locationId 検索結果の追加先におけるファイルパス・ワークシート名の位置ID
+     */
+    private void query(GrepExcelQuery query, String filePath, Sheet sheet, Row row, FormulaEvaluator evaluator,
+                       GrepExcelResultList resultList, int locationId) {
+        // セルの値は条件の評価で初めて参照された時点で取得し、検索結果の追加にも使用する
+        Map<Integer, String> values = new HashMap<>();
+        IntFunction<String> valueOf = column -> values.computeIfAbsent(column, c -> {
+            Cell cell = row.getCell(c);
+            return cell == null || cell.getCellType() == Cell.CELL_TYPE_BLANK || !isTargetCellType(cell.getCellType())
+                    ? ""
+                    : toStringValue(cell, evaluator);
+        });
+
+        boolean matched = query.matches(valueOf);
+
+        if (LogHolder.LOG.isDebugEnabled()) {
+            LogHolder.LOG.debug("file: {}, sheet: {}, row: {}, values: {}, matched: {}",
+                    filePath, sheet.getSheetName(), row.getRowNum() + 1, values, matched);
+        }
+
+        if (!matched) {
+            return;
+        }
+        for (Iterator<Cell> itr = toCellIterator(row, firstColumn, lastColumn); itr.hasNext(); ) {
+            Cell cell = itr.next();
+            if (cell.getCellType() == Cell.CELL_TYPE_BLANK || !isTargetCellType(cell.getCellType())) {
+                continue;
+            }
+            resultList.add(locationId, cell.getRowIndex(), cell.getColumnIndex(), valueOf.apply(cell.getColumnIndex()));
+        }
+    }
+
+    /**
+     * 2つの版のワークシートを比較し、追加・変更されたセルの中から文字列を検索します。
+     * <p>
+     * 新しい版の行を走査しながら、古い版の同じ行を並行して参照します。
+     *
+     * @param pattern      コンパイルされた検索パターン
+     * @param filePath     検索対象のファイルパス
+     * @param oldSheet     古い版のワークシート
+     * @param oldEvaluator 古い版の数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param newSheet     新しい版のワークシート
+     * @param newEvaluator 新しい版の数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @param resultList   検索結果の追加先
+     */
+    private void diff(Pattern pattern, String filePath, Sheet oldSheet, FormulaEvaluator oldEvaluator,
+                      Sheet newSheet, FormulaEvaluator newEvaluator, GrepExcelResultList resultList) {
+        int locationId = resultList.locationId(filePath, newSheet.getSheetName());
+        toRowStream(newSheet, firstRow, lastRow).forEach(row -> {
+            Row oldRow = oldSheet.getRow(row.getRowNum());
+            for (Iterator<Cell> itr = toCellIterator(row, firstColumn, lastColumn); itr.hasNext(); ) {
+                Cell cell = itr.next();
+
+                if (cell.getCellType() == Cell.CELL_TYPE_BLANK || !isTargetCellType(cell.getCellType())) {
+                    continue;
+                }
+
+                Cell oldCell = oldRow != null ? oldRow.getCell(cell.getColumnIndex()) : null;
+                if (oldCell != null && oldCell.getCellType() == Cell.CELL_TYPE_BLANK) {
+                    oldCell = null;
+                }
+                String rawValue = toRawValue(cell);
+                if (oldCell != null && rawValue != null && rawValue.equals(toRawValue(oldCell))) {
+                    continue;
+                }
+
+                String cellValue = toStringValue(cell, newEvaluator);
+                if (oldCell != null && cellValue.equals(toStringValue(oldCell, oldEvaluator))) {
+                    continue;
+                }
+
+                if (LogHolder.LOG.isDebugEnabled()) {
+                    LogHolder.LOG.debug("file: {}, sheet: {}, cell: {}, value: {}, {}",
+                            filePath, newSheet.getSheetName(), cell.getAddress(), cellValue,
+                            oldCell != null ? "modified" : "added");
+                }
+
+                if (pattern.matcher(cellValue).find()) {
+                    resultList.add(locationId, cell.getRowIndex(), cell.getColumnIndex(), cellValue);
+                }
+            }
+        });
+    }
+
+    /**
+     * ストリームで読み込んだ2つの版の行を比較し、追加・変更されたセルの中から文字列を検索します。
+     *
+     * @param pattern    コンパイルされた検索パターン
+     * @param filePath   検索対象のファイルパス
+     * @param sheetName  ワークシート名
+     * @param locationId 検索結果の追加先における、ワークシートの位置ID
+     * @param oldRows    古い版のワークシートのカーソル
+     * @param rowIndex   行インデックス（0始まり）
+     * @param cells      新しい版の行のセル（列の順）
+     * @param resultList 検索結果の追加先
+     * @throws SAXException 古い版のワークシートのXMLの解析に失敗した場合
+     */
+    private void diff(Pattern pattern, String filePath, String sheetName, int locationId,
+                      GrepExcelStreamingReader.SheetCursor oldRows, int rowIndex,
+                      List<GrepExcelStreamingReader.StreamingCell> cells, GrepExcelResultList resultList)
+            throws SAXException {
+        if (rowIndex < firstRow || (lastRow >= 0 && rowIndex > lastRow)) {
+            return;
+        }
+        List<GrepExcelStreamingReader.StreamingCell> oldCells = oldRows.getRow(rowIndex);
+        int oldPos = 0;
+        for (GrepExcelStreamingReader.StreamingCell cell : cells) {
+            int columnIndex = cell.getColumnIndex();
+            if (columnIndex < firstColumn || (lastColumn >= 0 && columnIndex > lastColumn)
+                    || !isTargetCellType(cell.getCellType())) {
+                continue;
+            }
+
+            // 古い版の行のセルも列の順のため、同じ列のセルまで読み進める
+            while (oldPos < oldCells.size() && oldCells.get(oldPos).getColumnIndex() < columnIndex) {
+                oldPos++;
+            }
+            GrepExcelStreamingReader.StreamingCell oldCell = oldPos < oldCells.size()
+                    && oldCells.get(oldPos).getColumnIndex() == columnIndex ? oldCells.get(oldPos) : null;
+            if (oldCell != null && toRawValue(cell).equals(toRawValue(oldCell))) {
+                continue;
+            }
+
+            String cellValue = toStringValue(cell);
+            if (oldCell != null && cellValue.equals(toStringValue(oldCell))) {
+                continue;
+            }
+
+            if (LogHolder.LOG.isDebugEnabled()) {
+                LogHolder.LOG.debug("file: {}, sheet: {}, cell: {}, value: {}, {}",
+                        filePath, sheetName, cell.getCellAddress(), cellValue,
+                        oldCell != null ? "modified" : "added");
+            }
+
+            if (pattern.matcher(cellValue).find()) {
+                resultList.add(locationId, rowIndex, columnIndex, cellValue);
+            }
+        }
+    }
+
+    /**
+     * セルの値・書式を、文字列値に変換せずに比較するための文字列を取得します。
+     * <p>
+     * セルの種類・値・書式（インデックス・書式の文字列）・日付システムが一致するセルは、文字列値も一致します。
+     * 数式の文字列を検索する場合は、書式によらず数式の文字列を比較します。
+     * 数式を再計算する場合は、他のセルの値により計算結果が変わるため比較できません。
+     *
+     * @param cell セル
+     * @return 比較するための文字列（比較できない場合は {@code null}）
+     */
+    private String toRawValue(Cell cell) {
+        String value;
+        switch (cell.getCellType()) {
+            case Cell.CELL_TYPE_STRING:
+                value = "S:" + cell.getRichStringCellValue().getString();
+                break;
+            case Cell.CELL_TYPE_NUMERIC:
+                value = "N:" + cell.getNumericCellValue();
+                break;
+            case Cell.CELL_TYPE_BOOLEAN:
+                value = "B:" + cell.getBooleanCellValue();
+                break;
+            case Cell.CELL_TYPE_ERROR:
+                value = "E:" + cell.getErrorCellValue();
+                break;
+            case Cell.CELL_TYPE_FORMULA:
+                if (!formulaResult) {
+                    return "F:" + cell.getCellFormula();
+                }
+                if (cachedFormulaResult) {
+                    value = "C:" + getCachedFormulaResult(cell).formatAsString();
+                    break;
+                }
+                return null;
+            default:
+                return null;
+        }
+        // 文字列値への変換に使用する書式・日付システムも比較する
+        POICell poiCell = new POICell(cell);
+        return value + ":" + poiCell.getFormatIndex() + ":" + poiCell.getFormatPattern()
+                + ":" + poiCell.isDateStart1904();
+    }
+
+    /**
+     * ストリームで読み込んだセルの値・書式を、文字列値に変換せずに比較するための文字列を取得します。
+     * <p>
+     * セルの種類・値・書式（インデックス・書式の文字列）・日付システムが一致するセルは、文字列値も一致します。
+     * 数式の文字列を検索する場合は、書式によらず数式の文字列を比較します。
+     *
+     * @param cell ストリームで読み込んだセル
+     * @return 比較するための文字列
+     */
+    private String toRawValue(GrepExcelStreamingReader.StreamingCell cell) {
+        if (cell.getCellType() == Cell.CELL_TYPE_FORMULA && !formulaResult) {
+            return "F:" + toStringValue(cell);
+        }
+        return cell.getCellType() + ":" + cell.getValueType() + ":" + cell.getRawValue()
+                + ":" + cell.getFormatIndex() + ":" + cell.getFormatPattern() + ":" + cell.isDateStart1904();
+    }
+
+    /**
+     * 2つのファイルの内容が同一かどうかを取得します。
+     *
+     * @param file1 ファイルパス
+     * @param file2 ファイルパス
+     * @return 内容が同一の場合は {@code true}
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private boolean isSameContent(Path file1, Path file2) throws IOException {
+        if (Files.size(file1) != Files.size(file2)) {
+            return false;
+        }
+        try (InputStream in1 = new BufferedInputStream(Files.newInputStream(file1));
+             InputStream in2 = new BufferedInputStream(Files.newInputStream(file2))) {
+            byte[] buf1 = new byte[8192];
+            byte[] buf2 = new byte[8192];
+            for (int n = in1.read(buf1); n > 0; n = in1.read(buf1)) {
+                int off = 0;
+                while (off < n) {
+                    int m = in2.read(buf2, off, n - off);
+                    if (m < 0) {
+                        return false;
+                    }
+                    off += m;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (buf1[i] != buf2[i]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 指定した範囲に含まれる行をストリームで取得します。
+     *
+     * @param sheet ワークシート
+     * @param first 最初の行インデックス（0始まり）
+     * @param last  最後の行インデックス（0始まり、{@code -1}の場合は最終行まで）
+     * @return 指定した範囲の行のストリーム
+     */
+    private Stream<Row> toRowStream(Sheet sheet, int first, int last) {
+        if (first <= 0 && last < 0) {
+            return toStream(sheet.rowIterator());
+        }
+        int from = Math.max(first, sheet.getFirstRowNum());
+        int to = last < 0 ? sheet.getLastRowNum() : Math.min(last, sheet.getLastRowNum());
+        return IntStream.rangeClosed(from, to).mapToObj(sheet::getRow).filter(Objects::nonNull);
+    }
+
+    /**
+     * 指定した範囲に含まれるセルのイテレータを取得します。
+     *
+     * @param row   行
+     * @param first 最初の列インデックス（0始まり）
+     * @param last  最後の列インデックス（0始まり、{@code -1}の場合は最終列まで）
+     * @return 指定した範囲のセルのイテレータ
+     */
+    private Iterator<Cell> toCellIterator(Row row, int first, int last) {
+        if (first <= 0 && last < 0) {
+            return row.cellIterator();
+        }
+        int from = Math.max(first, row.getFirstCellNum());
+        int to = last < 0 ? row.getLastCellNum() - 1 : Math.min(last, row.getLastCellNum() - 1);
+        return IntStream.rangeClosed(from, to).mapToObj(row::getCell).filter(Objects::nonNull).iterator();
+    }
+
+    /**
+     * 検索対象のワークシートかどうかを取得します。
+     *
+     * @param sheetName ワークシート名
+     * @return 検索対象のワークシートの場合は {@code true}
+     */
+    private boolean isTargetSheet(String sheetName) {
+        return sheetNamePattern == null || sheetNamePattern.matcher(sheetName).find();
+    }
+
+    /**
+     * 検索対象の種類のセルかどうかを取得します。
+     *
+     * @param cellType POIのセルの種類
+     * @return 検索対象の種類のセルの場合は {@code true}
+     */
+    private boolean isTargetCellType(int cellType) {
+        return cellTypes.isEmpty() || cellTypes.stream().anyMatch(type -> type.matches(cellType));
+    }
+
+    /**
+     * ワークブック内の数式を評価するエバリュエータを生成します。
+     * <p>
+     * エバリュエータは計算結果をキャッシュするため、ワークブック内の全てのワークシートで共有します。
+     *
+     * @param book ワークブック
+     * @return エバリュエータ（数式を再計算しない場合は {@code null}）
+     */
+    private FormulaEvaluator createFormulaEvaluator(Workbook book) {
+        if (!formulaResult || cachedFormulaResult) {
+            return null;
+        }
+        FormulaEvaluator evaluator = book.getCreationHelper().createFormulaEvaluator();
+        evaluator.setIgnoreMissingWorkbooks(true);
+        return evaluator;
+    }
+
+    /**
+     * セルの値を文字列で取得します。
+     *
+     * @param cell      セル
+     * @param evaluator 数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @return セルの文字列値
+     */
+    private String toStringValue(Cell cell, FormulaEvaluator evaluator) {
+        if (cell.getCellType() == Cell.CELL_TYPE_FORMULA) {
+            return formulaResult ? toFormulaResultValue(cell, evaluator) : "=" + cell.getCellFormula();
+        }
+
+        try {
+            return formatter().formatAsString(cell);
+        } catch (Exception e) {
+            return cell.toString();
+        }
+    }
+
+    /**
+     * ストリームで読み込んだセルの値を文字列で取得します。
+     * <p>
+     * 数式セルの計算結果は、ファイルに保存されている値を使用します。
+     * 変換できない共有数式（外部参照を含む場合等）の数式は、警告ログを出力して空文字とします。
+     *
+     * @param cell ストリームで読み込んだセル
+     * @return セルの文字列値
+     */
+    private String toStringValue(GrepExcelStreamingReader.StreamingCell cell) {
+        if (cell.getCellType() == Cell.CELL_TYPE_FORMULA && !formulaResult) {
+            try {
+                return "=" + cell.getFormula();
+            } catch (GrepExcelStreamingReader.SharedFormulaException e) {
+                if (e.isFirst()) {
+                    LogHolder.LOG.warn("failed to convert formula: {}", e.getMessage());
+                } else {
+                    LogHolder.LOG.debug("failed to convert formula: {}", e.getMessage());
+                }
+                return "";
+            }
+        }
+        switch (cell.getValueType()) {
+            case Cell.CELL_TYPE_NUMERIC:
+            case Cell.CELL_TYPE_STRING:
+            case Cell.CELL_TYPE_BOOLEAN:
+                try {
+                    return format(cell);
+                } catch (Exception e) {
+                    return cell.getRawValue();
+                }
+            case Cell.CELL_TYPE_ERROR:
+                return cell.getRawValue();
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * 数式セルの計算結果を文字列で取得します。
+     *
+     * @param cell      数式セル
+     * @param evaluator 数式の評価に使用するエバリュエータ（再計算しない場合は {@code null}）
+     * @return 数式セルの計算結果の文字列値
+     */
+    private String toFormulaResultValue(Cell cell, FormulaEvaluator evaluator) {
+        CellValue value = null;
+        if (evaluator != null) {
+            try {
+                value = evaluator.evaluate(cell);
+            } catch (Exception e) {
+                LogHolder.LOG.debug("failed to evaluate formula: {}", cell.getAddress(), e);
+            }
+        }
+        if (value == null) {
+            value = getCachedFormulaResult(cell);
+        }
+
+        switch (value.getCellType()) {
+            case Cell.CELL_TYPE_NUMERIC:
+            case Cell.CELL_TYPE_STRING:
+            case Cell.CELL_TYPE_BOOLEAN:
+                try {
+                    return format(new POIEvaluatedCell(cell, value));
+                } catch (Exception e) {
+                    return value.formatAsString();
+                }
+            case Cell.CELL_TYPE_ERROR:
+                return FormulaError.forInt(value.getErrorValue()).getString();
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * 数式セルにキャッシュされている計算結果を取得します。
+     *
+     * @param cell 数式セル
+     * @return 数式セルにキャッシュされている計算結果
+     */
+    private CellValue getCachedFormulaResult(Cell cell) {
+        switch (cell.getCachedFormulaResultType()) {
+            case Cell.CELL_TYPE_NUMERIC:
+                return new CellValue(cell.getNumericCellValue());
+            case Cell.CELL_TYPE_STRING:
+                return new CellValue(cell.getRichStringCellValue().getString());
+            case Cell.CELL_TYPE_BOOLEAN:
+                return CellValue.valueOf(cell.getBooleanCellValue());
+            case Cell.CELL_TYPE_ERROR:
+                return CellValue.getError(cell.getErrorCellValue());
+            default:
+                return new CellValue("");
+        }
+    }
+
+    /**
+     * 計算結果を設定したセル・ストリームで読み込んだセルの値を、セルの書式に従って文字列に変換します。
+     *
+     * @param cell 計算結果を設定したセル・ストリームで読み込んだセル
+     * @return セルの文字列値
+     */
+    private String format(CommonCell cell) {
+        FormatterResolver resolver = formatter().getFormatterResolver();
+        CellFormatter cellFormatter;
+        if (resolver.canResolve(cell.getFormatIndex())) {
+            cellFormatter = resolver.getFormatter(cell.getFormatIndex());
+        } else if (resolver.canResolve(cell.getFormatPattern())) {
+            cellFormatter = resolver.getFormatter(cell.getFormatPattern());
+        } else {
+            cellFormatter = resolver.createFormatter(cell.getFormatPattern());
+            if (formatter().isCache()) {
+                resolver.registerFormatter(cell.getFormatPattern(), cellFormatter);
+            }
+        }
+        return cellFormatter.format(cell).getText();
+    }
+
+    /**
+     * セル値取得フォーマッタを取得します。
+     * <p>
+     * フォーマッタはセルの値を初めて文字列に変換する時点で生成します。
+     *
+     * @return セル値取得フォーマッタ
+     */
+    private POICellFormatter formatter() {
+        POICellFormatter result = formatter;
+        if (result == null) {
+            synchronized (this) {
+                result = formatter;
+                if (result == null) {
+                    formatter = result = new POICellFormatter();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 負の値でないことを確認します。
+     *
+     * @param value 確認する値
+     * @param name  値の名前
+     * @return 確認した値
+     * @throws IllegalArgumentException 負の値の場合
+     */
+    private int requireNonNegative(int value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " must not be negative: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * 行番号（1始まり）を行インデックス（0始まり）に変換します。
+     *
+     * @param rowNumber    行番号
+     * @param defaultIndex 行番号が空の場合のインデックス
+     * @return 行インデックス
+     */
+    private int toRowIndex(String rowNumber, int defaultIndex) {
+        if (rowNumber.isEmpty()) {
+            return defaultIndex;
+        }
+        int rowIndex = Integer.parseInt(rowNumber) - 1;
+        if (rowIndex < 0) {
+            throw new IllegalArgumentException("Invalid row number \"" + rowNumber + "\"");
+        }
+        return rowIndex;
+    }
+
+    /**
+     * 列名（{@code A}, {@code B}, ...）を列インデックス（0始まり）に変換します。
+     *
+     * @param columnName   列名
+     * @param defaultIndex 列名が空の場合のインデックス
+     * @return 列インデックス
+     */
+    private int toColumnIndex(String columnName, int defaultIndex) {
+        return columnName.isEmpty() ? defaultIndex : CellReference.convertColStringToIndex(columnName);
+    }
+
+    /**
+     * ワイルドカード（{@code *}, {@code ?}）を含む文字列を、全体に一致する正規表現に変換します。
+     *
+     * @param glob ワイルドカードを含む文字列
+     * @return 正規表現
+     */
+    private String toGlobRegex(String glob) {
+        StringBuilder regex = new StringBuilder("^");
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (glob.length() > start) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+        return regex.append("$").toString();
+    }
+
+    /**
+     * 指定したファイル・ディレクトリパスから、Excelファイル（アーカイブファイルを含む）のパスを取得します。
+     *
+     * @param paths ファイル・ディレクトリパス
+     * @return Excelファイル（アーカイブファイルを含む）のパス
+     */
+    private Path[] getExcelFiles(Path... paths) {
+        return Stream.of(paths)
+                .flatMap(p -> {
+                    try {
+                        return Files.walk(p, recursive ? Integer.MAX_VALUE : 1, FileVisitOption.FOLLOW_LINKS);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(path -> isExcelFile(path) || (archive && isArchiveFile(path)))
+                .map(path -> path.toAbsolutePath().normalize())
+                .toArray(Path[]::new);
+    }
+
+    /**
+     * Excelファイルかどうかを取得します。
+     *
+     * @param path ファイル・ディレクトリパス
+     * @return Excelファイルの場合は {@code true}
+     */
+    private boolean isExcelFile(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        return isExcelFileName(path.toAbsolutePath().normalize().getFileName().toString());
+    }
+
+    /**
+     * アーカイブファイルかどうかを取得します。
+     *
+     * @param path ファイル・ディレクトリパス
+     * @return アーカイブファイルの場合は {@code true}
+     */
+    private boolean isArchiveFile(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        return isArchiveFileName(path.toAbsolutePath().normalize().getFileName().toString());
+    }
+
+    /**
+     * Excelファイルのファイル名かどうかを取得します。
+     *
+     * @param fileName ファイル名
+     * @return Excelファイルのファイル名の場合は {@code true}
+     */
+    private boolean isExcelFileName(String fileName) {
+        int idx = fileName.lastIndexOf(".");
+        return idx >= 0 && Arrays.asList(EXTENSIONS).contains(fileName.substring(idx + 1));
+    }
+
+    /**
+     * アーカイブファイルのファイル名かどうかを取得します。
+     *
+     * @param fileName ファイル名
+     * @return アーカイブファイルのファイル名の場合は {@code true}
+     */
+    private boolean isArchiveFileName(String fileName) {
+        return Stream.of(ARCHIVE_EXTENSIONS).anyMatch(ext -> fileName.endsWith("." + ext));
+    }
+
+    /**
+     * 検索対象とするアーカイブのエントリ名（Excelファイル、またはアーカイブファイル）かどうかを取得します。
+     *
+     * @param entryName エントリ名
+     * @return 検索対象とするエントリ名の場合は {@code true}
+     */
+    private boolean isTargetEntryName(String entryName) {
+        return isExcelFileName(entryName) || isArchiveFileName(entryName);
     }
 
     /**
@@ -374,8 +2050,18 @@ public class GrepExcel {
                 ", ignoreCase=" + ignoreCase +
                 ", literal=" + literal +
                 ", formulaResult=" + formulaResult +
+                ", cachedFormulaResult=" + cachedFormulaResult +
                 ", recursive=" + recursive +
-                ", parallel=" + parallel +
+                ", executionMode=" + executionMode +
+                ", archive=" + archive +
+                ", sheetNamePattern=" + sheetNamePattern +
+                ", range=" + range +
+                ", cellTypes=" + cellTypes +
+                ", beforeRows=" + beforeRows +
+                ", afterRows=" + afterRows +
+                ", beforeColumns=" + beforeColumns +
+                ", afterColumns=" + afterColumns +
+                ", passwords=" + passwords().size() +
                 "}";
     }
 
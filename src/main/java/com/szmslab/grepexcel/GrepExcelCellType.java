@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.poi.ss.usermodel.Cell;
+
+/**
+ * 検索対象とするセルの種類を表す列挙型です。
+ *
+ * @author szmslab
+ */
+public enum GrepExcelCellType {
+
+    /**
+     * 文字列セル。
+     */
+    STRING(Cell.CELL_TYPE_STRING),
+
+    /**
+     * 数値セル（日付を含む）。
+     */
+    NUMERIC(Cell.CELL_TYPE_NUMERIC),
+
+    /**
+     * 真偽値セル。
+     */
+    BOOLEAN(Cell.CELL_TYPE_BOOLEAN),
+
+    /**
+     * 数式セル。
+     */
+    FORMULA(Cell.CELL_TYPE_FORMULA),
+
+    /**
+     * エラーセル。
+     */
+    ERROR(Cell.CELL_TYPE_ERROR);
+
+    /**
+     * POIのセルの種類。
+     */
+    private final int cellType;
+
+    /**
+     * コンストラクタです。
+     *
+     * @param cellType POIのセルの種類
+     */
+    GrepExcelCellType(int cellType) {
+        this.cellType = cellType;
+    }
+
+    /**
+     * POIのセルの種類が、この種類に該当するかどうかを取得します。
+     *
+     * @param cellType POIのセルの種類（{@link Cell#getCellType()}）
+     * @return 該当する場合は {@code true}
+     */
+    boolean matches(int cellType) {
+        return this.cellType == cellType;
+    }
+
+}
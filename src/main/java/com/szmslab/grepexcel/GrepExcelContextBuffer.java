@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * 検索結果の前後のセル（コンテキスト）を、ワークシートを走査しながら収集するクラスです。
+ * <p>
+ * 直近の行の値をリングバッファに保持し、後続の行の値は走査した時点で検索結果に追加するため、
+ * ワークシートを再度読み込むことなく、保持する行数も前後の行数に制限されます。
+ * インスタンスはワークシートごとに生成します。
+ *
+ * @author szmslab
+ */
+class GrepExcelContextBuffer {
+
+    /**
+     * 前の行数。
+     */
+    private final int rowsBefore;
+
+    /**
+     * 後の行数。
+     */
+    private final int rowsAfter;
+
+    /**
+     * 前（左）の列数。
+     */
+    private final int columnsBefore;
+
+    /**
+     * 後（右）の列数。
+     */
+    private final int columnsAfter;
+
+    /**
+     * 直近に走査した行（リングバッファ）。
+     */
+    private final Deque<RowValues> recentRows = new ArrayDeque<>();
+
+    /**
+     * 後の行の値を収集中の検索結果。
+     */
+    private final List<PendingResult> pendingResults = new ArrayList<>();
+
+    /**
+     * コンストラクタです。
+     *
+     * @param rowsBefore    前の行数
+     * @param rowsAfter     後の行数
+     * @param columnsBefore 前（左）の列数
+     * @param columnsAfter  後（右）の列数
+     */
+    GrepExcelContextBuffer(int rowsBefore, int rowsAfter, int columnsBefore, int columnsAfter) {
+        this.rowsBefore = rowsBefore;
+        this.rowsAfter = rowsAfter;
+        this.columnsBefore = columnsBefore;
+        this.columnsAfter = columnsAfter;
+    }
+
+    /**
+     * 走査を開始した行の値を、後の行の値を収集中の検索結果に追加します。
+     * <p>
+     * 行は行インデックスの昇順に渡す必要があります。
+     *
+     * @param row    行インデックス
+     * @param values 行のセルの値（キーは列インデックス）
+     */
+    void startRow(int row, SortedMap<Integer, String> values) {
+        for (Iterator<PendingResult> itr = pendingResults.iterator(); itr.hasNext(); ) {
+            PendingResult pending = itr.next();
+            if (row > pending.row + rowsAfter) {
+                itr.remove();
+                continue;
+            }
+            addColumns(pending.context, pending.locationId, row, pending.column, values, true);
+        }
+        while (!recentRows.isEmpty() && recentRows.peekFirst().row < row - rowsBefore) {
+            recentRows.removeFirst();
+        }
+    }
+
+    /**
+     * 検索結果のコンテキストを取得します。
+     * <p>
+     * 前の行と同じ行のセルは直ちに、後の行のセルは以降の行を走査した時点で追加されます。
+     *
+     * @param filePath  検索対象のファイルパス
+     * @param sheetName ワークシート名
+     * @param row       検索結果の行インデックス
+     * @param column    検索結果の列インデックス
+     * @param values    検索結果の行のセルの値（キーは列インデックス）
+     * @return 検索結果のコンテキスト
+     */
+    GrepExcelResultList capture(String filePath, String sheetName, int row, int column,
+                                SortedMap<Integer, String> values) {
+        GrepExcelResultList context = new GrepExcelResultList();
+        int id = context.locationId(filePath, sheetName);
+        for (RowValues recent : recentRows) {
+            addColumns(context, id, recent.row, column, recent.values, true);
+        }
+        addColumns(context, id, row, column, values, false);
+        if (rowsAfter > 0) {
+            pendingResults.add(new PendingResult(id, row, column, context));
+        }
+        return context;
+    }
+
+    /**
+     * 走査を終了した行の値を、直近に走査した行として保持します。
+     *
+     * @param row    行インデックス
+     * @param values 行のセルの値（キーは列インデックス）
+     */
+    void endRow(int row, SortedMap<Integer, String> values) {
+        if (rowsBefore > 0) {
+            recentRows.addLast(new RowValues(row, values));
+        }
+    }
+
+    /**
+     * 前後の列のセルの値をコンテキストに追加します。
+     *
+     * @param context     追加先のコンテキスト
+     * @param locationId  追加先のコンテキストにおける位置ID
+     * @param row         行インデックス
+     * @param column      検索結果の列インデックス
+     * @param values      行のセルの値（キーは列インデックス）
+     * @param includeSelf 検索結果と同じ列のセルを追加する場合は {@code true}
+     */
+    private void addColumns(GrepExcelResultList context, int locationId, int row, int column,
+                            SortedMap<Integer, String> values, boolean includeSelf) {
+        for (Map.Entry<Integer, String> entry
+                : values.subMap(Math.max(0, column - columnsBefore), column + columnsAfter + 1).entrySet()) {
+            if (includeSelf || entry.getKey() != column) {
+                context.add(locationId, row, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 行のセルの値を保持するクラスです。
+     */
+    private static class RowValues {
+
+        /**
+         * 行インデックス。
+         */
+        final int row;
+
+        /**
+         * 行のセルの値（キーは列インデックス）。
+         */
+        final SortedMap<Integer, String> values;
+
+        RowValues(int row, SortedMap<Integer, String> values) {
+            this.row = row;
+            this.values = values;
+        }
+
+    }
+
+    /**
+     * 後の行の値を収集中の検索結果を保持するクラスです。
+     */
+    private static class PendingResult {
+
+        /**
+         * コンテキストにおける位置ID。
+         */
+        final int locationId;
+
+        /**
+         * 検索結果の行インデックス。
+         */
+        final int row;
+
+        /**
+         * 検索結果の列インデックス。
+         */
+        final int column;
+
+        /**
+         * 検索結果のコンテキスト。
+         */
+        final GrepExcelResultList context;
+
+        PendingResult(int locationId, int row, int column, GrepExcelResultList context) {
+            this.locationId = locationId;
+            this.row = row;
+            this.column = column;
+            this.context = context;
+        }
+
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionVerifier;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * パスワードで暗号化されたワークブックを開くクラスです。
+ * <p>
+ * パスワードの検証（鍵の導出）は計算量が大きいため、パスワードと暗号化情報（ソルト等）の組み合わせごとに
+ * 導出した鍵を保持し、最後に検証に成功したパスワードから順に検証します。
+ * 複数のスレッドから同時に使用でき、スレッド間で排他制御は行いません。
+ *
+ * @author szmslab
+ */
+class GrepExcelDecryptor {
+
+    /**
+     * 暗号化されたOOXML形式のファイルが持つエントリの名前。
+     */
+    private static final String ENCRYPTION_INFO_ENTRY = "EncryptionInfo";
+
+    /**
+     * 保持する鍵の最大数。
+     */
+    private static final int MAX_CACHED_KEYS = 10000;
+
+    /**
+     * {@link Decryptor}に導出済みの鍵を設定するメソッド（使用できない場合は {@code null}）。
+     */
+    private static final Method SET_SECRET_KEY = findSetSecretKey();
+
+    /**
+     * パスワードのリスト。
+     */
+    private final List<String> passwords;
+
+    /**
+     * パスワード・暗号化情報の組み合わせごとの鍵（パスワードが正しくない場合は空）。
+     */
+    private final ConcurrentMap<String, Optional<SecretKey>> keyCache = new ConcurrentHashMap<>();
+
+    /**
+     * 最後に検証に成功したパスワードのインデックス。
+     */
+    private volatile int lastPasswordIndex;
+
+    /**
+     * コンストラクタです。
+     *
+     * @param passwords パスワードのリスト
+     */
+    GrepExcelDecryptor(List<String> passwords) {
+        this.passwords = Collections.unmodifiableList(new ArrayList<>(passwords));
+    }
+
+    /**
+     * パスワードのリストを取得します。
+     *
+     * @return パスワードのリスト
+     */
+    List<String> passwords() {
+        return passwords;
+    }
+
+    /**
+     * OLE2形式のファイル（.xls、または暗号化されたOOXML形式のファイル）からワークブックを開きます。
+     * <p>
+     * ワークブックの内容は全て読み込まれるため、ワークブックを開いた後にファイルシステムをクローズできます。
+     *
+     * @param fs OLE2形式のファイルシステム
+     * @return ワークブック
+     * @throws IOException                入出力エラーが発生した場合
+     * @throws InvalidFormatException     ファイルの形式が正しくない場合
+     * @throws EncryptedDocumentException いずれのパスワードでも復号できない場合
+     */
+    Workbook open(NPOIFSFileSystem fs) throws IOException, InvalidFormatException {
+        if (fs.getRoot().hasEntry(ENCRYPTION_INFO_ENTRY)) {
+            return openOoxml(fs);
+        }
+        return openHssf(fs);
+    }
+
+    /**
+     * 暗号化されたOOXML形式のワークブックを開きます。
+     * <p>
+     * 復号したパッケージは、一時的なバイト配列を経由せずにストリームから読み込みます。
+     *
+     * @param fs OLE2形式のファイルシステム
+     * @return ワークブック
+     * @throws IOException                入出力エラーが発生した場合
+     * @throws InvalidFormatException     ファイルの形式が正しくない場合
+     * @throws EncryptedDocumentException いずれのパスワードでも復号できない場合
+     */
+    private Workbook openOoxml(NPOIFSFileSystem fs) throws IOException, InvalidFormatException {
+        EncryptionInfo info = new EncryptionInfo(fs);
+        Decryptor decryptor = Decryptor.getInstance(info);
+        try {
+            for (int index : passwordOrder()) {
+                if (verifyPassword(info, decryptor, passwords.get(index))) {
+                    lastPasswordIndex = index;
+                    try (InputStream in = decryptor.getDataStream(fs)) {
+                        return WorkbookFactory.create(OPCPackage.open(in));
+                    }
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new EncryptedDocumentException(e);
+        }
+        throw new EncryptedDocumentException("No valid password");
+    }
+
+    /**
+     * .xls形式のワークブックを開きます。
+     * <p>
+     * 暗号化されていない場合、または既定のパスワードで暗号化されている場合はパスワードを使用しません。
+     * パスワードはスレッドごとに設定されるため、他のスレッドの処理には影響しません。
+     *
+     * @param fs OLE2形式のファイルシステム
+     * @return ワークブック
+     * @throws IOException                入出力エラーが発生した場合
+     * @throws EncryptedDocumentException いずれのパスワードでも復号できない場合
+     */
+    private Workbook openHssf(NPOIFSFileSystem fs) throws IOException {
+        try {
+            return new HSSFWorkbook(fs.getRoot(), false);
+        } catch (EncryptedDocumentException e) {
+            for (int index : passwordOrder()) {
+                Biff8EncryptionKey.setCurrentUserPassword(passwords.get(index));
+                try {
+                    Workbook book = new HSSFWorkbook(fs.getRoot(), false);
+                    lastPasswordIndex = index;
+                    return book;
+                } catch (EncryptedDocumentException ignore) {
+                    // 次のパスワードで検証する
+                } finally {
+                    Biff8EncryptionKey.setCurrentUserPassword(null);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * パスワードを検証し、正しい場合は復号に使用する鍵を設定します。
+     *
+     * @param info      暗号化情報
+     * @param decryptor 復号に使用する{@link Decryptor}
+     * @param password  パスワード
+     * @return パスワードが正しい場合は {@code true}
+     * @throws GeneralSecurityException 鍵の導出に失敗した場合
+     */
+    private boolean verifyPassword(EncryptionInfo info, Decryptor decryptor, String password)
+            throws GeneralSecurityException {
+        String cacheKey = toCacheKey(info, password);
+        Optional<SecretKey> cached = keyCache.get(cacheKey);
+        if (cached != null) {
+            if (!cached.isPresent()) {
+                return false;
+            }
+            if (setSecretKey(decryptor, cached.get())) {
+                return true;
+            }
+        }
+
+        // 同じ組み合わせを複数のスレッドが同時に検証することがあっても、結果は同じであるため排他制御は行わない
+        boolean valid = decryptor.verifyPassword(password);
+        if (keyCache.size() >= MAX_CACHED_KEYS) {
+            keyCache.clear();
+        }
+        keyCache.putIfAbsent(cacheKey, valid ? Optional.of(decryptor.getSecretKey()) : Optional.empty());
+        return valid;
+    }
+
+    /**
+     * 検証するパスワードのインデックスを、最後に検証に成功したパスワードから順に取得します。
+     *
+     * @return パスワードのインデックス
+     */
+    private int[] passwordOrder() {
+        int first = lastPasswordIndex;
+        int[] order = new int[passwords.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (first + i) % order.length;
+        }
+        return order;
+    }
+
+    /**
+     * 導出した鍵を保持するためのキーを取得します。
+     * <p>
+     * 鍵はパスワードと、ソルト・ストレッチング回数・暗号化された鍵などの暗号化情報から一意に導出されます。
+     *
+     * @param info     暗号化情報
+     * @param password パスワード
+     * @return 導出した鍵を保持するためのキー
+     */
+    private String toCacheKey(EncryptionInfo info, String password) {
+        EncryptionVerifier verifier = info.getVerifier();
+        return info.getVersionMajor() + "." + info.getVersionMinor()
+                + ":" + verifier.getCipherAlgorithm() + ":" + verifier.getHashAlgorithm()
+                + ":" + verifier.getSpinCount()
+                + ":" + toBase64(verifier.getSalt())
+                + ":" + toBase64(verifier.getEncryptedKey())
+                + ":" + toBase64(verifier.getEncryptedVerifier())
+                + ":" + password;
+    }
+
+    /**
+     * バイト配列をBase64形式の文字列に変換します。
+     *
+     * @param bytes バイト配列
+     * @return Base64形式の文字列（バイト配列が {@code null} の場合は空文字列）
+     */
+    private String toBase64(byte[] bytes) {
+        return bytes != null ? Base64.getEncoder().encodeToString(bytes) : "";
+    }
+
+    /**
+     * {@link Decryptor}に導出済みの鍵を設定します。
+     *
+     * @param decryptor 鍵を設定する{@link Decryptor}
+     * @param secretKey 導出済みの鍵
+     * @return 設定できた場合は {@code true}
+     */
+    private boolean setSecretKey(Decryptor decryptor, SecretKey secretKey) {
+        if (SET_SECRET_KEY == null) {
+            return false;
+        }
+        try {
+            SET_SECRET_KEY.invoke(decryptor, secretKey);
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@link Decryptor}に導出済みの鍵を設定するメソッドを取得します。
+     * <p>
+     * POIは鍵を設定するAPIを公開していないため、リフレクションで取得します。
+     * 取得できない場合は、毎回パスワードを検証します。
+     *
+     * @return 鍵を設定するメソッド（取得できない場合は {@code null}）
+     */
+    private static Method findSetSecretKey() {
+        try {
+            Method method = Decryptor.class.getDeclaredMethod("setSecretKey", SecretKey.class);
+            method.setAccessible(true);
+            return method;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+}
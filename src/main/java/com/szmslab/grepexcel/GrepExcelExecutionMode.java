@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+/**
+ * 検索処理の実行方法を表す列挙型です。
+ *
+ * @author szmslab
+ */
+public enum GrepExcelExecutionMode {
+
+    /**
+     * ファイルを1つずつ検索します。
+     */
+    SEQUENTIAL,
+
+    /**
+     * ファイルを共通のフォーク・ジョイン・プールで並列に検索します。
+     */
+    PARALLEL,
+
+    /**
+     * ファイル数・ファイルサイズ・ヒープの空き容量・CPU数から、
+     * 並列度とファイルごとの読み込み方法（全体を読み込む・ストリームで読み込む）を決定します。
+     */
+    AUTO
+
+}
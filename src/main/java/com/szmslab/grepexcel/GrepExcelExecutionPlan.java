@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * 検索処理の実行計画（並列度・ファイルごとの読み込み方法）を決定するクラスです。
+ * <p>
+ * {@link GrepExcelExecutionMode#AUTO}の場合は、ファイル数・ファイルサイズ・ヒープの空き容量・CPU数から実行計画を決定し、
+ * 決定内容を情報ログ（標準エラー出力）に、ファイルごとの読み込み方法をデバッグログに出力します。ZIPファイルはエントリごとに並列実行するため、エントリを1ファイルとして数えます。
+ *
+ * @author szmslab
+ */
+class GrepExcelExecutionPlan {
+
+    /**
+     * ロガー。
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(GrepExcelExecutionPlan.class);
+
+    /**
+     * ワークブック全体を読み込む場合の、OOXML形式のファイルサイズに対するヒープ使用量の倍率の目安。
+     */
+    private static final int OOXML_MEMORY_FACTOR = 40;
+
+    /**
+     * ワークブック全体を読み込む場合の、.xls形式のファイルサイズに対するヒープ使用量の倍率の目安。
+     */
+    private static final int HSSF_MEMORY_FACTOR = 6;
+
+    /**
+     * ストリームで読み込む場合の、ファイルサイズに対するヒープ使用量の倍率の目安（共有文字列・スタイル）。
+     */
+    private static final int STREAMING_MEMORY_FACTOR = 4;
+
+    /**
+     * 並列実行する最小のファイルサイズの合計。
+     * <p>
+     * これより小さい場合は、スレッド間のクラスの初期化・JITコンパイルの競合により並列実行の方が遅くなります。
+     */
+    private static final long MIN_PARALLEL_BYTES = 512 * 1024;
+
+    /**
+     * 実行方法。
+     */
+    private final GrepExcelExecutionMode mode;
+
+    /**
+     * 並列度（{@code 1}の場合は並列実行しない）。
+     */
+    private final int parallelism;
+
+    /**
+     * ワークブック全体を読み込める、OOXML形式のファイルの最大サイズ（これより大きいファイルはストリームで読み込む）。
+     */
+    private final long streamingThreshold;
+
+    /**
+     * コンストラクタです。
+     *
+     * @param mode               実行方法
+     * @param parallelism        並列度
+     * @param streamingThreshold ワークブック全体を読み込める、OOXML形式のファイルの最大サイズ
+     */
+    private GrepExcelExecutionPlan(GrepExcelExecutionMode mode, int parallelism, long streamingThreshold) {
+        this.mode = mode;
+        this.parallelism = parallelism;
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * 実行計画を決定します。
+     *
+     * @param mode      実行方法
+     * @param files     検索対象のファイルパス
+     * @param streaming ストリームでの読み込みが可能な検索処理の場合は {@code true}
+     * @return 実行計画
+     */
+    static GrepExcelExecutionPlan create(GrepExcelExecutionMode mode, Path[] files, boolean streaming) {
+        switch (mode) {
+            case SEQUENTIAL:
+                return new GrepExcelExecutionPlan(mode, 1, Long.MAX_VALUE);
+            case PARALLEL:
+                return new GrepExcelExecutionPlan(mode, ForkJoinPool.getCommonPoolParallelism(), Long.MAX_VALUE);
+            default:
+                break;
+        }
+
+        Runtime runtime = Runtime.getRuntime();
+        long freeHeap = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        int cores = runtime.availableProcessors();
+
+        // ワークブック全体を読み込むとヒープの空き容量の半分を超えるファイルは、ストリームで読み込む
+        long streamingThreshold = streaming ? freeHeap / 2 / OOXML_MEMORY_FACTOR : Long.MAX_VALUE;
+
+        long totalBytes = 0;
+        long maxMemory = 1;
+        int units = 0;
+        int streamingCount = 0;
+        for (Path file : files) {
+            if (isZip(file)) {
+                // ZIPファイルはエントリごとに並列実行するため、エントリ（展開後のサイズ）を並列実行の単位とする
+                try (ZipFile zip = new ZipFile(file.toFile())) {
+                    for (ZipArchiveEntry entry : Collections.list(zip.getEntries())) {
+                        if (!entry.isDirectory()) {
+                            long size = Math.max(0, entry.getSize());
+                            totalBytes += size;
+                            units++;
+                            maxMemory = Math.max(maxMemory, estimateMemory(entry.getName(), size, false));
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                continue;
+            }
+            long size = size(file);
+            totalBytes += size;
+            units++;
+            boolean stream = isStreamable(file) && size > streamingThreshold;
+            if (stream) {
+                streamingCount++;
+            }
+            maxMemory = Math.max(maxMemory, estimateMemory(file.getFileName().toString(), size, stream));
+        }
+
+        int parallelism = 1;
+        String reason;
+        if (units <= 1) {
+            reason = "single file";
+        } else if (totalBytes < MIN_PARALLEL_BYTES) {
+            reason = "small workload";
+        } else {
+            parallelism = (int) Math.max(1, Math.min(Math.min(cores, units), freeHeap / maxMemory));
+            reason = parallelism < Math.min(cores, units) ? "limited by heap" : "limited by cores/files";
+        }
+
+        LOG.info("execution plan: files={}, units={}, totalBytes={}, freeHeap={}, cores={}, maxEstimatedMemory={}, "
+                        + "parallelism={} ({}), streamingFiles={}, streamingThreshold={}",
+                files.length, units, totalBytes, freeHeap, cores, maxMemory, parallelism, reason, streamingCount,
+                streaming ? streamingThreshold : "n/a");
+        return new GrepExcelExecutionPlan(mode, parallelism, streamingThreshold);
+    }
+
+    /**
+     * 並列実行するかどうかを取得します。
+     *
+     * @return 並列実行する場合は {@code true}
+     */
+    boolean parallel() {
+        return mode == GrepExcelExecutionMode.PARALLEL || parallelism > 1;
+    }
+
+    /**
+     * ファイルをストリームで読み込むかどうかを取得します。
+     *
+     * @param file ファイルパス
+     * @return ストリームで読み込む場合は {@code true}
+     */
+    boolean streaming(Path file) {
+        if (streamingThreshold == Long.MAX_VALUE || !isStreamable(file)) {
+            return false;
+        }
+        long size = size(file);
+        boolean stream = size > streamingThreshold;
+        LOG.debug("reader: {} ({} bytes): {}", file, size, stream ? "streaming" : "usermodel");
+        return stream;
+    }
+
+    /**
+     * 各ファイルに処理を実行します。
+     * <p>
+     * 処理にはファイルのインデックスを渡すため、インデックスごとに結果の格納先を用意することで、
+     * 並列実行する場合も排他制御を行わずに、ファイルの順序どおりに結果を集約できます。
+     * {@link GrepExcelExecutionMode#AUTO}で並列実行する場合は、並列度を制限した専用のプールで実行します。
+     *
+     * @param fileCount ファイル数
+     * @param action    処理（引数はファイルのインデックス）
+     */
+    void forEach(int fileCount, IntConsumer action) {
+        if (!parallel()) {
+            IntStream.range(0, fileCount).forEach(action);
+            return;
+        }
+        if (mode == GrepExcelExecutionMode.PARALLEL) {
+            IntStream.range(0, fileCount).parallel().forEach(action);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> IntStream.range(0, fileCount).parallel().forEach(action)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * ストリームで読み込めるファイル（OOXML形式）かどうかを取得します。
+     *
+     * @param file ファイルパス
+     * @return ストリームで読み込めるファイルの場合は {@code true}
+     */
+    private static boolean isStreamable(Path file) {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return fileName.endsWith(".xlsx") || fileName.endsWith(".xlsm") || fileName.endsWith(".xltx");
+    }
+
+    /**
+     * エントリごとに並列実行できるアーカイブファイル（ZIPファイル）かどうかを取得します。
+     *
+     * @param file ファイルパス
+     * @return ZIPファイルの場合は {@code true}
+     */
+    private static boolean isZip(Path file) {
+        return file.getFileName().toString().endsWith(".zip");
+    }
+
+    /**
+     * ファイルの検索に必要なヒープ使用量を見積もります。
+     *
+     * @param name   ファイル名（アーカイブ内のファイルの場合はエントリの名前）
+     * @param size   ファイルサイズ
+     * @param stream ストリームで読み込む場合は {@code true}
+     * @return ヒープ使用量の見積もり
+     */
+    private static long estimateMemory(String name, long size, boolean stream) {
+        if (stream) {
+            return size * STREAMING_MEMORY_FACTOR;
+        }
+        String fileName = name.toLowerCase(Locale.ROOT);
+        boolean hssf = fileName.endsWith(".xls") || fileName.endsWith(".xlt");
+        return size * (hssf ? HSSF_MEMORY_FACTOR : OOXML_MEMORY_FACTOR);
+    }
+
+    /**
+     * ファイルサイズを取得します。
+     *
+     * @param file ファイルパス
+     * @return ファイルサイズ
+     */
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "{" +
+                "mode=" + mode +
+                ", parallelism=" + parallelism +
+                ", streamingThreshold=" + streamingThreshold +
+                "}";
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.poi.ss.util.CellReference;
+
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 行単位の検索条件（クエリ）を解析・評価するクラスです。
+ * <p>
+ * クエリの書式は{@link GrepExcel#query(String, java.nio.file.Path...)}を参照してください。
+ * 条件は左から順に評価し、結果が確定した時点で残りの条件は評価しません（短絡評価）。
+ *
+ * @author szmslab
+ */
+class GrepExcelQuery {
+
+    /**
+     * クエリ文字列。
+     */
+    private final String queryText;
+
+    /**
+     * 正規表現のフラグ。
+     */
+    private final int flags;
+
+    /**
+     * クエリの解析位置。
+     */
+    private int pos;
+
+    /**
+     * 解析された条件。
+     */
+    private final Condition condition;
+
+    /**
+     * コンストラクタです。
+     *
+     * @param queryText クエリ文字列
+     * @param flags     正規表現のフラグ（{@link Pattern#compile(String, int)}）
+     * @throws IllegalArgumentException クエリの書式が正しくない場合
+     */
+    GrepExcelQuery(String queryText, int flags) {
+        this.queryText = queryText;
+        this.flags = flags;
+        this.condition = parseOr();
+        skipSpaces();
+        if (pos < queryText.length()) {
+            throw invalid("unexpected character");
+        }
+    }
+
+    /**
+     * 行がクエリの条件を満たすかどうかを取得します。
+     *
+     * @param values 列インデックス（0始まり）からセルの値を取得する関数（条件の評価に必要な列のみ呼び出されます）
+     * @return 条件を満たす場合は {@code true}
+     */
+    boolean matches(IntFunction<String> values) {
+        return condition.test(values);
+    }
+
+    /**
+     * 論理和を解析します。
+     *
+     * @return 条件
+     */
+    private Condition parseOr() {
+        Condition left = parseAnd();
+        while (consume("||")) {
+            Condition l = left;
+            Condition r = parseAnd();
+            left = values -> l.test(values) || r.test(values);
+        }
+        return left;
+    }
+
+    /**
+     * 論理積を解析します。
+     *
+     * @return 条件
+     */
+    private Condition parseAnd() {
+        Condition left = parseUnary();
+        while (consume("&&")) {
+            Condition l = left;
+            Condition r = parseUnary();
+            left = values -> l.test(values) && r.test(values);
+        }
+        return left;
+    }
+
+    /**
+     * 否定・グループ化・列の条件を解析します。
+     *
+     * @return 条件
+     */
+    private Condition parseUnary() {
+        if (consume("!")) {
+            Condition c = parseUnary();
+            return values -> !c.test(values);
+        }
+        if (consume("(")) {
+            Condition c = parseOr();
+            if (!consume(")")) {
+                throw invalid("')' expected");
+            }
+            return c;
+        }
+        return parseTerm();
+    }
+
+    /**
+     * 列の条件（{@code 列 =~ /正規表現/}, {@code 列 !~ /正規表現/}）を解析します。
+     *
+     * @return 条件
+     */
+    private Condition parseTerm() {
+        skipSpaces();
+        int start = pos;
+        while (pos < queryText.length() && isColumnLetter(queryText.charAt(pos))) {
+            pos++;
+        }
+        if (start == pos) {
+            throw invalid("column name expected");
+        }
+        int column = CellReference.convertColStringToIndex(queryText.substring(start, pos));
+
+        boolean negate;
+        if (consume("=~")) {
+            negate = false;
+        } else if (consume("!~")) {
+            negate = true;
+        } else {
+            throw invalid("'=~' or '!~' expected");
+        }
+
+        Pattern pattern = parseRegex();
+        return values -> pattern.matcher(values.apply(column)).find() != negate;
+    }
+
+    /**
+     * {@code /} で囲まれた正規表現を解析します。
+     *
+     * @return コンパイルされた正規表現
+     */
+    private Pattern parseRegex() {
+        if (!consume("/")) {
+            throw invalid("'/' expected");
+        }
+        StringBuilder regex = new StringBuilder();
+        while (pos < queryText.length() && queryText.charAt(pos) != '/') {
+            char c = queryText.charAt(pos++);
+            if (c == '\\' && pos < queryText.length() && queryText.charAt(pos) == '/') {
+                c = queryText.charAt(pos++);
+            } else if (c == '\\' && pos < queryText.length()) {
+                regex.append(c);
+                c = queryText.charAt(pos++);
+            }
+            regex.append(c);
+        }
+        if (!consume("/")) {
+            throw invalid("'/' expected");
+        }
+        try {
+            return Pattern.compile(regex.toString(), flags);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid query \"" + queryText + "\": " + e.getDescription(), e);
+        }
+    }
+
+    /**
+     * 空白を読み飛ばした後、指定した文字列が続く場合は読み進めます。
+     *
+     * @param token 文字列
+     * @return 指定した文字列が続いていた場合は {@code true}
+     */
+    private boolean consume(String token) {
+        skipSpaces();
+        if (queryText.startsWith(token, pos)) {
+            pos += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 空白を読み飛ばします。
+     */
+    private void skipSpaces() {
+        while (pos < queryText.length() && Character.isWhitespace(queryText.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    /**
+     * 列名に使用できる文字かどうかを取得します。
+     *
+     * @param c 文字
+     * @return 列名に使用できる文字の場合は {@code true}
+     */
+    private boolean isColumnLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    /**
+     * クエリの書式が正しくないことを表す例外を生成します。
+     *
+     * @param message メッセージ
+     * @return 例外
+     */
+    private IllegalArgumentException invalid(String message) {
+        return new IllegalArgumentException("Invalid query \"" + queryText + "\": " + message + " at index " + pos);
+    }
+
+    @Override
+    public String toString() {
+        return queryText;
+    }
+
+    /**
+     * 行に対する条件を表すインタフェースです。
+     */
+    @FunctionalInterface
+    private interface Condition {
+
+        /**
+         * 行が条件を満たすかどうかを取得します。
+         *
+         * @param values 列インデックスからセルの値を取得する関数
+         * @return 条件を満たす場合は {@code true}
+         */
+        boolean test(IntFunction<String> values);
+
+    }
+
+}
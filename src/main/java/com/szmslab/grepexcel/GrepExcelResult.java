@@ -6,6 +6,10 @@
  */
 package com.szmslab.grepexcel;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
 /**
  * Excelファイル検索結果（セル単位）を保持するクラスです。
  *
@@ -33,6 +37,11 @@ public class GrepExcelResult {
      */
     public final String cellValue;
 
+    /**
+     * 前後のセル（コンテキスト）のリスト。
+     */
+    public final List<GrepExcelResult> contextList;
+
     /**
      * コンストラクタです。
      *
@@ -42,10 +51,46 @@ public class GrepExcelResult {
      * @param cellValue   セルの値
      */
     public GrepExcelResult(String filePath, String sheetName, String cellAddress, String cellValue) {
+        this(filePath, sheetName, cellAddress, cellValue, Collections.emptyList());
+    }
+
+    /**
+     * コンストラクタです。
+     *
+     * @param filePath    ファイルパス
+     * @param sheetName   ワークシート名
+     * @param cellAddress セルのアドレス
+     * @param cellValue   セルの値
+     * @param contextList 前後のセル（コンテキスト）のリスト
+     */
+    public GrepExcelResult(String filePath, String sheetName, String cellAddress, String cellValue,
+                           List<GrepExcelResult> contextList) {
         this.filePath = filePath;
         this.sheetName = sheetName;
         this.cellAddress = cellAddress;
         this.cellValue = cellValue;
+        this.contextList = Collections.unmodifiableList(contextList);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof GrepExcelResult)) {
+            return false;
+        }
+        GrepExcelResult other = (GrepExcelResult) obj;
+        return Objects.equals(filePath, other.filePath)
+                && Objects.equals(sheetName, other.sheetName)
+                && Objects.equals(cellAddress, other.cellAddress)
+                && Objects.equals(cellValue, other.cellValue)
+                && contextList.equals(other.contextList);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(filePath, sheetName, cellAddress, cellValue, contextList);
     }
 
     @Override
@@ -55,6 +100,7 @@ public class GrepExcelResult {
                 ", sheetName=" + sheetName +
                 ", cellAddress=" + cellAddress +
                 ", cellValue=" + cellValue +
+                ", contextList=" + contextList +
                 "}";
     }
 
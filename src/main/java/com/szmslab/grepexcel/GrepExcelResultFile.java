@@ -7,7 +7,6 @@
 package com.szmslab.grepexcel;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,13 +21,18 @@ public class GrepExcelResultFile {
      */
     public final Path file;
 
+    /**
+     * 検索対象のファイルパス（アーカイブ内のファイルの場合は {@code archive!/inner/path.xlsx}）。
+     */
+    public final String filePath;
+
     /**
      * コンストラクタです。
      *
      * @param file 検索対象のファイルパス
      */
     public GrepExcelResultFile(Path file) {
-        this.file = file;
+        this(file, file.toString(), new GrepExcelResultList());
     }
 
     /**
@@ -38,19 +42,46 @@ public class GrepExcelResultFile {
      * @param resultList Excelファイル検索結果（セル単位）のリスト
      */
     public GrepExcelResultFile(Path file, List<GrepExcelResult> resultList) {
-        this.file = file;
+        this(file, file.toString(), resultList);
+    }
+
+    /**
+     * コンストラクタです。
+     *
+     * @param file       検索対象のファイルパス（アーカイブ内のファイルの場合はアーカイブファイルのパス）
+     * @param filePath   検索対象のファイルパス（アーカイブ内のファイルの場合は {@code archive!/inner/path.xlsx}）
+     * @param resultList Excelファイル検索結果（セル単位）のリスト
+     */
+    public GrepExcelResultFile(Path file, String filePath, List<GrepExcelResult> resultList) {
+        this(file, filePath, new GrepExcelResultList());
         this.resultList.addAll(resultList);
     }
 
+    /**
+     * コンストラクタです。
+     *
+     * @param file       検索対象のファイルパス（アーカイブ内のファイルの場合はアーカイブファイルのパス）
+     * @param filePath   検索対象のファイルパス（アーカイブ内のファイルの場合は {@code archive!/inner/path.xlsx}）
+     * @param resultList Excelファイル検索結果（セル単位）のリスト（コピーせずに保持します）
+     */
+    GrepExcelResultFile(Path file, String filePath, GrepExcelResultList resultList) {
+        this.file = file;
+        this.filePath = filePath;
+        this.resultList = resultList;
+    }
+
     /**
      * Excelファイル検索結果（セル単位）のリスト。
+     * <p>
+     * 検索結果は配列で保持しており、{@link GrepExcelResult}は要素を取得するたびに生成されます。
      */
-    public final List<GrepExcelResult> resultList = new ArrayList<>();
+    public final List<GrepExcelResult> resultList;
 
     @Override
     public String toString() {
         return "{" +
                 "file=" + file +
+                ", filePath=" + filePath +
                 ", resultList=" + resultList +
                 "}";
     }
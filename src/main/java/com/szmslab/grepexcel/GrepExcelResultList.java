@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.poi.ss.util.CellAddress;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Excelファイル検索結果（セル単位）を配列で保持するリストです。
+ * <p>
+ * ファイルパス・ワークシート名は共有するテーブルのID、セルの位置は行・列のインデックスで保持し、
+ * {@link GrepExcelResult}とセルのアドレスは要素を取得する時点で生成します。
+ * {@link List}のメソッドで追加・設定された{@link GrepExcelResult}は、そのまま保持して返します。
+ * {@link #freeze()}を呼び出した後は変更できません。
+ *
+ * @author szmslab
+ */
+class GrepExcelResultList extends AbstractList<GrepExcelResult> implements RandomAccess {
+
+    /**
+     * 配列の初期サイズ。
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * ファイルパスのテーブル（インデックスは位置ID）。
+     */
+    private final List<String> filePaths = new ArrayList<>();
+
+    /**
+     * ワークシート名のテーブル（インデックスは位置ID）。
+     */
+    private final List<String> sheetNames = new ArrayList<>();
+
+    /**
+     * 各検索結果の位置ID（ファイルパス・ワークシート名のテーブルのインデックス）。
+     */
+    private int[] locationIds = new int[0];
+
+    /**
+     * 各検索結果の行インデックス（0始まり）。
+     */
+    private int[] rows = new int[0];
+
+    /**
+     * 各検索結果の列インデックス（0始まり）。
+     */
+    private int[] columns = new int[0];
+
+    /**
+     * 各検索結果のセルの値。
+     */
+    private String[] values = new String[0];
+
+    /**
+     * 各検索結果のコンテキスト（コンテキストを設定するまでは {@code null}）。
+     */
+    private GrepExcelResultList[] contexts;
+
+    /**
+     * {@link List}のメソッドで追加・設定された検索結果（追加・設定するまでは {@code null}）。
+     */
+    private GrepExcelResult[] results;
+
+    /**
+     * 検索結果の件数。
+     */
+    private int size;
+
+    /**
+     * 変更できないかどうか。
+     */
+    private boolean frozen;
+
+    /**
+     * ファイルパス・ワークシート名の位置IDを取得します。
+     * <p>
+     * 未登録の組み合わせの場合はテーブルに追加します。
+     *
+     * @param filePath  ファイルパス
+     * @param sheetName ワークシート名
+     * @return 位置ID
+     */
+    int locationId(String filePath, String sheetName) {
+        for (int id = filePaths.size() - 1; id >= 0; id--) {
+            if (filePaths.get(id).equals(filePath) && sheetNames.get(id).equals(sheetName)) {
+                return id;
+            }
+        }
+        filePaths.add(filePath);
+        sheetNames.add(sheetName);
+        return filePaths.size() - 1;
+    }
+
+    /**
+     * 検索結果を追加します。
+     *
+     * @param locationId {@link #locationId(String, String)}で取得した位置ID
+     * @param row        行インデックス（0始まり）
+     * @param column     列インデックス（0始まり）
+     * @param value      セルの値
+     */
+    void add(int locationId, int row, int column, String value) {
+        checkModifiable();
+        if (size == values.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            locationIds = Arrays.copyOf(locationIds, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            values = Arrays.copyOf(values, capacity);
+            if (contexts != null) {
+                contexts = Arrays.copyOf(contexts, capacity);
+            }
+            if (results != null) {
+                results = Arrays.copyOf(results, capacity);
+            }
+        }
+        locationIds[size] = locationId;
+        rows[size] = row;
+        columns[size] = column;
+        values[size] = value;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * 検索結果のコンテキストを設定します。
+     *
+     * @param index   検索結果の位置
+     * @param context コンテキスト
+     */
+    void setContext(int index, GrepExcelResultList context) {
+        checkModifiable();
+        if (contexts == null) {
+            contexts = new GrepExcelResultList[values.length];
+        }
+        contexts[index] = context;
+    }
+
+    /**
+     * 以降は変更できないリストにします。
+     * <p>
+     * 検索結果の件数を集計した{@link GrepExcelResultSummary}が、集計後に変更されないようにするために使用します。
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public void add(int index, GrepExcelResult result) {
+        checkModifiable();
+        Objects.requireNonNull(result);
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        add(-1, -1, -1, result.cellValue);
+        setResult(size - 1, result);
+        if (index < size - 1) {
+            rotateRight(index);
+        }
+    }
+
+    @Override
+    public GrepExcelResult set(int index, GrepExcelResult result) {
+        checkModifiable();
+        Objects.requireNonNull(result);
+        GrepExcelResult old = get(index);
+        values[index] = result.cellValue;
+        setResult(index, result);
+        if (contexts != null) {
+            contexts[index] = null;
+        }
+        return old;
+    }
+
+    @Override
+    public GrepExcelResult remove(int index) {
+        checkModifiable();
+        GrepExcelResult old = get(index);
+        int moved = size - index - 1;
+        System.arraycopy(locationIds, index + 1, locationIds, index, moved);
+        System.arraycopy(rows, index + 1, rows, index, moved);
+        System.arraycopy(columns, index + 1, columns, index, moved);
+        System.arraycopy(values, index + 1, values, index, moved);
+        if (contexts != null) {
+            System.arraycopy(contexts, index + 1, contexts, index, moved);
+            contexts[size - 1] = null;
+        }
+        if (results != null) {
+            System.arraycopy(results, index + 1, results, index, moved);
+            results[size - 1] = null;
+        }
+        values[--size] = null;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public GrepExcelResult get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (results != null && results[index] != null) {
+            return results[index];
+        }
+        int id = locationIds[index];
+        return new GrepExcelResult(
+                filePaths.get(id),
+                sheetNames.get(id),
+                new CellAddress(rows[index], columns[index]).formatAsString(),
+                values[index],
+                contexts != null && contexts[index] != null ? contexts[index] : Collections.emptyList());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 変更できるリストであることを確認します。
+     *
+     * @throws UnsupportedOperationException {@link #freeze()}を呼び出した後の場合
+     */
+    private void checkModifiable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("result list is unmodifiable");
+        }
+    }
+
+    /**
+     * 末尾の要素を指定した位置に移動し、それ以降の要素を1つずつ後ろにずらします。
+     *
+     * @param index 移動先の位置
+     */
+    private void rotateRight(int index) {
+        int last = size - 1;
+        int locationId = locationIds[last];
+        int row = rows[last];
+        int column = columns[last];
+        String value = values[last];
+        System.arraycopy(locationIds, index, locationIds, index + 1, last - index);
+        System.arraycopy(rows, index, rows, index + 1, last - index);
+        System.arraycopy(columns, index, columns, index + 1, last - index);
+        System.arraycopy(values, index, values, index + 1, last - index);
+        locationIds[index] = locationId;
+        rows[index] = row;
+        columns[index] = column;
+        values[index] = value;
+        if (contexts != null) {
+            GrepExcelResultList context = contexts[last];
+            System.arraycopy(contexts, index, contexts, index + 1, last - index);
+            contexts[index] = context;
+        }
+        if (results != null) {
+            GrepExcelResult result = results[last];
+            System.arraycopy(results, index, results, index + 1, last - index);
+            results[index] = result;
+        }
+    }
+
+    /**
+     * {@link List}のメソッドで追加・設定された検索結果を保持します。
+     *
+     * @param index  検索結果の位置
+     * @param result 検索結果
+     */
+    private void setResult(int index, GrepExcelResult result) {
+        if (results == null) {
+            results = new GrepExcelResult[values.length];
+        }
+        results[index] = result;
+    }
+
+}
@@ -6,9 +6,12 @@
  */
 package com.szmslab.grepexcel;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
 /**
@@ -20,16 +23,67 @@ public class GrepExcelResultSummary {
 
     /**
      * Excelファイル検索結果（ファイル単位）のリスト。
+     * <p>
+     * 検索処理で生成された場合は、各ファイルの検索結果（セル単位）のリストも含めて変更できません。
      */
     public final List<GrepExcelResultFile> resultFileList;
 
+    /**
+     * 各ファイルの検索結果の開始位置（全てのExcelファイル検索結果（セル単位）における位置、
+     * 末尾の要素は全体の件数）。
+     * 検索結果を集計していない場合は {@code null}。
+     */
+    private final int[] offsets;
+
+    /**
+     * 検索結果が存在するファイル数（検索結果を集計していない場合は {@code -1}）。
+     */
+    private final int matchFileCount;
+
     /**
      * コンストラクタです。
      *
      * @param parallel 検索処理を並列実行するかどうか。
      */
     public GrepExcelResultSummary(boolean parallel) {
-        this.resultFileList = parallel ? new CopyOnWriteArrayList<>() : new ArrayList<>();
+        this.resultFileList = parallel ? Collections.synchronizedList(new ArrayList<>()) : new ArrayList<>();
+        this.offsets = null;
+        this.matchFileCount = -1;
+    }
+
+    /**
+     * コンストラクタです。
+     * <p>
+     * 検索結果の件数はこの時点で集計し、集計した件数と食い違わないように、
+     * 各ファイルの検索結果（セル単位）のリストも含めて変更できないリストとして保持します。
+     *
+     * @param resultFiles Excelファイル検索結果（ファイル単位）の配列（コピーせずに保持します）
+     */
+    GrepExcelResultSummary(GrepExcelResultFile[] resultFiles) {
+        int[] offsets = new int[resultFiles.length + 1];
+        int matchFileCount = 0;
+        for (int i = 0; i < resultFiles.length; i++) {
+            ((GrepExcelResultList) resultFiles[i].resultList).freeze();
+            int size = resultFiles[i].resultList.size();
+            offsets[i + 1] = offsets[i] + size;
+            if (size > 0) {
+                matchFileCount++;
+            }
+        }
+        this.resultFileList = Collections.unmodifiableList(Arrays.asList(resultFiles));
+        this.offsets = offsets;
+        this.matchFileCount = matchFileCount;
+    }
+
+    /**
+     * コンストラクタです。
+     * <p>
+     * 検索対象のファイルごとの検索結果を、格納先の順に連結して保持します。
+     *
+     * @param results 検索対象のファイルごとの、Excelファイル検索結果（ファイル単位）の配列
+     */
+    GrepExcelResultSummary(GrepExcelResultFile[][] results) {
+        this(concat(results));
     }
 
     /**
@@ -47,18 +101,58 @@ public class GrepExcelResultSummary {
      * @return 検索結果が存在するファイル数
      */
     public int matchFileCount() {
+        if (offsets != null) {
+            return matchFileCount;
+        }
         return resultFileList.stream().mapToInt(rf -> rf.resultList.size() > 0 ? 1 : 0).sum();
     }
 
+    /**
+     * 全てのExcelファイル検索結果（セル単位）の件数を取得します。
+     *
+     * @return 全てのExcelファイル検索結果（セル単位）の件数
+     */
+    public int matchCount() {
+        if (offsets != null) {
+            return offsets[offsets.length - 1];
+        }
+        return resultFileList.stream().mapToInt(rf -> rf.resultList.size()).sum();
+    }
+
     /**
      * 全てのExcelファイル検索結果（セル単位）のリストを取得します。
+     * <p>
+     * 検索処理で生成された場合は、各ファイルの検索結果をコピーせずに参照する、変更できないリストを返します。
      *
      * @return 全てのExcelファイル検索結果（セル単位）のリスト
      */
     public List<GrepExcelResult> allResultList() {
+        if (offsets != null) {
+            return new ResultListView();
+        }
         return resultFileList.stream().flatMap(rf -> rf.resultList.stream()).collect(Collectors.toList());
     }
 
+    /**
+     * 検索対象のファイルごとの検索結果を連結します。
+     *
+     * @param results 検索対象のファイルごとの、Excelファイル検索結果（ファイル単位）の配列
+     * @return 連結したExcelファイル検索結果（ファイル単位）の配列
+     */
+    private static GrepExcelResultFile[] concat(GrepExcelResultFile[][] results) {
+        int count = 0;
+        for (GrepExcelResultFile[] resultFiles : results) {
+            count += resultFiles.length;
+        }
+        GrepExcelResultFile[] concatenated = new GrepExcelResultFile[count];
+        int pos = 0;
+        for (GrepExcelResultFile[] resultFiles : results) {
+            System.arraycopy(resultFiles, 0, concatenated, pos, resultFiles.length);
+            pos += resultFiles.length;
+        }
+        return concatenated;
+    }
+
     @Override
     public String toString() {
         return "{" +
@@ -66,4 +160,33 @@ public class GrepExcelResultSummary {
                 "}";
     }
 
+    /**
+     * 各ファイルの検索結果を連結して参照するリストです。
+     */
+    private class ResultListView extends AbstractList<GrepExcelResult> implements RandomAccess {
+
+        @Override
+        public GrepExcelResult get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            // 開始位置が index 以下となる最後のファイル（検索結果が存在しないファイルは除く）を探す
+            int pos = Arrays.binarySearch(offsets, index);
+            if (pos < 0) {
+                pos = -pos - 2;
+            } else {
+                while (offsets[pos + 1] == index) {
+                    pos++;
+                }
+            }
+            return resultFileList.get(pos).resultList.get(index - offsets[pos]);
+        }
+
+        @Override
+        public int size() {
+            return offsets[offsets.length - 1];
+        }
+
+    }
+
 }
@@ -0,0 +1,1513 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import com.github.mygreen.cellformatter.CommonCell;
+import com.github.mygreen.cellformatter.lang.ExcelDateUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.ZipPackagePart;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.FormulaRenderer;
+import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
+import org.apache.poi.ss.formula.FormulaType;
+import org.apache.poi.ss.formula.SharedFormula;
+import org.apache.poi.ss.formula.SheetIdentifier;
+import org.apache.poi.ss.formula.ptg.Area3DPxg;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.NameXPxg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.util.AreaReference;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+
+/**
+ * OOXML形式（.xlsx等）のワークブックを、ワークシートのXMLをストリームで解析しながら読み込むクラスです。
+ * <p>
+ * ワークシートをメモリに展開しないため、巨大なファイルも少ないメモリで読み込めます。
+ * 共有文字列・スタイルのみメモリに読み込みます。
+ * 数式は再計算できないため、計算結果はファイルに保存されている値となります。
+ * 共有数式の数式は、ワークブック全体を読み込む場合と同様に、基準となる数式の参照をセルの位置に合わせて移動して取得します。
+ * 2つの版のワークブックを比較する場合は、ワークシートのパーツのダイジェストで変更の有無を判定し、
+ * 古い版のワークシートを{@link SheetCursor}で新しい版の行と並行して読み込みます。
+ *
+ * @author szmslab
+ */
+class GrepExcelStreamingReader {
+
+    /**
+     * 行を受け取るインタフェースです。
+     */
+    @FunctionalInterface
+    interface RowHandler {
+
+        /**
+         * 行を受け取ります。
+         *
+         * @param sheetName ワークシート名
+         * @param rowIndex  行インデックス（0始まり）
+         * @param cells     行のセル（列の順、空のセルは含みません）
+         * @throws SAXException 行の処理中にXMLの解析に失敗した場合
+         */
+        void row(String sheetName, int rowIndex, List<StreamingCell> cells) throws SAXException;
+
+    }
+
+    /**
+     * 共有数式の数式を変換できない場合にスローされる例外です。
+     * <p>
+     * 基準となる数式が存在しない場合と、外部参照等によりPOIの数式パーサで解析できない場合にスローします。
+     */
+    static class SharedFormulaException extends RuntimeException {
+
+        /**
+         * シリアルバージョンUID。
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 同じ共有数式で最初にスローされた例外かどうか。
+         */
+        private final boolean first;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param cellAddress 共有数式のセルのアドレス（ワークシート名を含む）
+         * @param reason      変換できない理由
+         * @param first       同じ共有数式で最初にスローする場合は {@code true}
+         */
+        SharedFormulaException(String cellAddress, String reason, boolean first) {
+            super("Shared formula: " + cellAddress + " (" + reason + ")");
+            this.first = first;
+        }
+
+        /**
+         * 同じ共有数式で最初にスローされた例外かどうかを取得します。
+         *
+         * @return 最初にスローされた例外の場合は {@code true}
+         */
+        boolean isFirst() {
+            return first;
+        }
+
+    }
+
+    /**
+     * パッケージ。
+     */
+    private final OPCPackage pkg;
+
+    /**
+     * スタイル（読み込み前は {@code null}）。
+     */
+    private StylesTable styles;
+
+    /**
+     * 共有文字列のリスト。
+     */
+    private List<String> sharedStrings;
+
+    /**
+     * 1904年を基準とする日付システムかどうか。
+     */
+    private boolean date1904;
+
+    /**
+     * ワークシート名と、ワークシートのパーツ（ワークブックでのワークシートの順）。
+     */
+    private Map<String, PackagePart> sheetParts;
+
+    /**
+     * 共有数式の変換に使用するワークブック。
+     */
+    private FormulaWorkbook formulaWorkbook;
+
+    /**
+     * コンストラクタです。
+     *
+     * @param pkg 読み込むパッケージ
+     */
+    GrepExcelStreamingReader(OPCPackage pkg) {
+        this.pkg = pkg;
+    }
+
+    /**
+     * ワークシートのセルを、ワークシート・行の順に、行ごとに読み込みます。
+     * <p>
+     * セルが存在しない行は読み込みません。
+     *
+     * @param sheetFilter 読み込むワークシートの条件（ワークシート名）
+     * @param handler     行を受け取るハンドラ
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    void read(Predicate<String> sheetFilter, RowHandler handler)
+            throws IOException, OpenXML4JException, SAXException {
+        for (String sheetName : getSheetNames()) {
+            if (sheetFilter.test(sheetName)) {
+                read(sheetName, handler);
+            }
+        }
+    }
+
+    /**
+     * 指定したワークシートのセルを、行の順に、行ごとに読み込みます。
+     * <p>
+     * セルが存在しない行は読み込みません。
+     *
+     * @param sheetName ワークシート名
+     * @param handler   行を受け取るハンドラ
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    void read(String sheetName, RowHandler handler) throws IOException, OpenXML4JException, SAXException {
+        try (InputStream in = getSheetPart(sheetName).getInputStream()) {
+            parse(in, createSheetHandler(sheetName, handler));
+        }
+    }
+
+    /**
+     * 指定したワークシートの行を、行の順に読み込むカーソルを開きます。
+     *
+     * @param sheetName ワークシート名
+     * @return カーソル（使用後にクローズが必要）
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    SheetCursor openCursor(String sheetName) throws IOException, OpenXML4JException, SAXException {
+        InputStream in = getSheetPart(sheetName).getInputStream();
+        try {
+            return new SheetCursor(sheetName, in);
+        } catch (SAXException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * ワークシート名のリストを、ワークブックでのワークシートの順に取得します。
+     *
+     * @return ワークシート名のリスト
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    List<String> getSheetNames() throws IOException, OpenXML4JException, SAXException {
+        load();
+        return new ArrayList<>(sheetParts.keySet());
+    }
+
+    /**
+     * 指定したワークシートのパーツが、他のリーダの同じ名前のワークシートのパーツと同一かどうかを取得します。
+     * <p>
+     * パーツは読み込まずに、ZIPの中央ディレクトリに記録されたCRC-32・サイズ（圧縮前・圧縮後）を比較します。
+     * ZIPのエントリの情報を取得できない場合のみ、両方のパーツを読み込んでダイジェスト（SHA-256）を比較します。
+     *
+     * @param other     比較対象のリーダ
+     * @param sheetName ワークシート名
+     * @return 同一の場合は {@code true}
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    boolean isSameSheetPart(GrepExcelStreamingReader other, String sheetName)
+            throws IOException, OpenXML4JException, SAXException {
+        PackagePart part = getSheetPart(sheetName);
+        PackagePart otherPart = other.getSheetPart(sheetName);
+        ZipEntry entry = part instanceof ZipPackagePart ? ((ZipPackagePart) part).getZipArchive() : null;
+        ZipEntry otherEntry = otherPart instanceof ZipPackagePart
+                ? ((ZipPackagePart) otherPart).getZipArchive() : null;
+        if (entry != null && otherEntry != null && entry.getCrc() != -1 && otherEntry.getCrc() != -1
+                && entry.getSize() != -1 && otherEntry.getSize() != -1) {
+            return entry.getCrc() == otherEntry.getCrc() && entry.getSize() == otherEntry.getSize()
+                    && entry.getCompressedSize() == otherEntry.getCompressedSize();
+        }
+        return Arrays.equals(digest(part), digest(otherPart));
+    }
+
+    /**
+     * ワークシートのパーツが同一であれば、古い版のワークブックと同じセルの値・書式となるかどうかを取得します。
+     * <p>
+     * 日付システムが同一で、古い版の共有文字列・スタイル（書式）が新しい版の先頭と一致する
+     * （共有文字列・スタイルの追加のみの）場合は、古い版と同じパーツのワークシートのセルは、古い版と同じ値・書式となります。
+     *
+     * @param old 古い版のワークブックのリーダ
+     * @return 同じセルの値・書式となる場合は {@code true}
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    boolean isCompatibleWith(GrepExcelStreamingReader old) throws IOException, OpenXML4JException, SAXException {
+        load();
+        old.load();
+        if (date1904 != old.date1904
+                || sharedStrings.size() < old.sharedStrings.size()
+                || !sharedStrings.subList(0, old.sharedStrings.size()).equals(old.sharedStrings)
+                || styles.getNumCellStyles() < old.styles.getNumCellStyles()) {
+            return false;
+        }
+        for (int i = 0; i < old.styles.getNumCellStyles(); i++) {
+            short formatIndex = styles.getStyleAt(i).getDataFormat();
+            if (formatIndex != old.styles.getStyleAt(i).getDataFormat()
+                    || !getFormatPattern(styles, formatIndex).equals(getFormatPattern(old.styles, formatIndex))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * スタイル・共有文字列・日付システム・ワークシートのパーツを読み込みます（読み込み済みの場合は何もしません）。
+     *
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    private void load() throws IOException, OpenXML4JException, SAXException {
+        if (sheetParts != null) {
+            return;
+        }
+        XSSFReader reader = new XSSFReader(pkg);
+        styles = reader.getStylesTable();
+        sharedStrings = readSharedStrings();
+        List<String> names = new ArrayList<>();
+        List<Integer> nameSheetIndexes = new ArrayList<>();
+        date1904 = readWorkbook(reader, names, nameSheetIndexes);
+
+        Map<String, PackagePart> parts = new LinkedHashMap<>();
+        XSSFReader.SheetIterator itr = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (itr.hasNext()) {
+            // ワークシートのパーツのみ取得するため、開かれた入力ストリームは読み込まずに閉じる
+            itr.next().close();
+            parts.put(itr.getSheetName(), itr.getSheetPart());
+        }
+        sheetParts = parts;
+        formulaWorkbook = new FormulaWorkbook(new ArrayList<>(parts.keySet()), names, nameSheetIndexes);
+    }
+
+    /**
+     * ワークシートのXMLを解析するハンドラを生成します。
+     *
+     * @param sheetName ワークシート名
+     * @param handler   行を受け取るハンドラ
+     * @return ワークシートのXMLを解析するハンドラ
+     */
+    private SheetHandler createSheetHandler(String sheetName, RowHandler handler) {
+        return new SheetHandler(sheetName, handler, styles, sharedStrings, date1904,
+                formulaWorkbook, formulaWorkbook.sheetNames.indexOf(sheetName));
+    }
+
+    /**
+     * ワークシートのパーツを取得します。
+     *
+     * @param sheetName ワークシート名
+     * @return ワークシートのパーツ
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    private PackagePart getSheetPart(String sheetName) throws IOException, OpenXML4JException, SAXException {
+        load();
+        PackagePart part = sheetParts.get(sheetName);
+        if (part == null) {
+            throw new IllegalArgumentException("Sheet not found: " + sheetName);
+        }
+        return part;
+    }
+
+    /**
+     * パーツのダイジェスト（SHA-256）を取得します。
+     *
+     * @param part パーツ
+     * @return ダイジェスト
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static byte[] digest(PackagePart part) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = part.getInputStream()) {
+            byte[] buf = new byte[8192];
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                digest.update(buf, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 書式のインデックスに対応する書式を取得します。
+     *
+     * @param styles      スタイル
+     * @param formatIndex 書式のインデックス
+     * @return 書式（存在しない場合は空文字列）
+     */
+    private static String getFormatPattern(StylesTable styles, short formatIndex) {
+        String formatPattern = styles.getNumberFormatAt(formatIndex);
+        if (formatPattern == null) {
+            formatPattern = BuiltinFormats.getBuiltinFormat(formatIndex);
+        }
+        return formatPattern != null ? formatPattern : "";
+    }
+
+    /**
+     * 共有文字列を読み込みます。
+     * <p>
+     * ワークブックと同様に、ふりがな（{@code rPh}）は文字列に含めません。
+     *
+     * @return 共有文字列のリスト
+     * @throws IOException  入出力エラーが発生した場合
+     * @throws SAXException XMLの解析に失敗した場合
+     */
+    private List<String> readSharedStrings() throws IOException, SAXException {
+        List<String> strings = new ArrayList<>();
+        List<PackagePart> parts = pkg.getPartsByContentType(
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml");
+        if (parts.isEmpty()) {
+            return strings;
+        }
+        try (InputStream in = parts.get(0).getInputStream()) {
+            parse(in, new TextHandler("si") {
+                @Override
+                void text(String text) {
+                    strings.add(text);
+                }
+            });
+        }
+        return strings;
+    }
+
+    /**
+     * ワークブックの日付システムと、名前の定義を読み込みます。
+     *
+     * @param reader           ワークブックのリーダ
+     * @param names            名前の追加先（ワークブックでの名前の順）
+     * @param nameSheetIndexes 名前の適用範囲（ワークシートのインデックス、ブックの場合は {@code -1}）の追加先
+     * @return 1904年を基準とする日付システムの場合は {@code true}
+     * @throws IOException         入出力エラーが発生した場合
+     * @throws OpenXML4JException  パッケージの形式が正しくない場合
+     * @throws SAXException        XMLの解析に失敗した場合
+     */
+    private boolean readWorkbook(XSSFReader reader, List<String> names, List<Integer> nameSheetIndexes)
+            throws IOException, OpenXML4JException, SAXException {
+        boolean[] date1904 = {false};
+        try (InputStream in = reader.getWorkbookData()) {
+            parse(in, new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        String value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equals(value);
+                    } else if ("definedName".equals(localName)) {
+                        String localSheetId = attributes.getValue("localSheetId");
+                        names.add(attributes.getValue("name"));
+                        nameSheetIndexes.add(localSheetId != null ? Integer.parseInt(localSheetId) : -1);
+                    }
+                }
+            });
+        }
+        return date1904[0];
+    }
+
+    /**
+     * XMLを解析します。
+     *
+     * @param in      XMLの入力ストリーム
+     * @param handler ハンドラ
+     * @throws IOException  入出力エラーが発生した場合
+     * @throws SAXException XMLの解析に失敗した場合
+     */
+    private void parse(InputStream in, DefaultHandler handler) throws IOException, SAXException {
+        XMLReader xml;
+        try {
+            xml = SAXHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+        xml.setContentHandler(handler);
+        xml.parse(new InputSource(in));
+    }
+
+    /**
+     * 指定した要素内のテキスト（ふりがなを除く）を取得するハンドラです。
+     */
+    private abstract static class TextHandler extends DefaultHandler {
+
+        /**
+         * テキストを取得する要素の名前。
+         */
+        private final String elementName;
+
+        /**
+         * テキスト。
+         */
+        private final StringBuilder text = new StringBuilder();
+
+        /**
+         * テキストを取得する要素内かどうか。
+         */
+        private boolean inElement;
+
+        /**
+         * テキスト（{@code t}）要素内かどうか。
+         */
+        private boolean inText;
+
+        /**
+         * ふりがな（{@code rPh}）要素内かどうか。
+         */
+        private boolean inPhonetic;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param elementName テキストを取得する要素の名前
+         */
+        TextHandler(String elementName) {
+            this.elementName = elementName;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (elementName.equals(localName)) {
+                inElement = true;
+                text.setLength(0);
+            } else if ("rPh".equals(localName)) {
+                inPhonetic = true;
+            } else if ("t".equals(localName)) {
+                inText = true;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (elementName.equals(localName)) {
+                inElement = false;
+                text(text.toString());
+            } else if ("rPh".equals(localName)) {
+                inPhonetic = false;
+            } else if ("t".equals(localName)) {
+                inText = false;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inElement && inText && !inPhonetic) {
+                text.append(ch, start, length);
+            }
+        }
+
+        /**
+         * 要素内のテキストを受け取ります。
+         *
+         * @param text テキスト
+         */
+        abstract void text(String text);
+
+    }
+
+    /**
+     * ワークシートのXMLを解析するハンドラです。
+     */
+    private static class SheetHandler extends TextHandler {
+
+        /**
+         * ワークシート名。
+         */
+        private final String sheetName;
+
+        /**
+         * 行を受け取るハンドラ。
+         */
+        private final RowHandler handler;
+
+        /**
+         * スタイル。
+         */
+        private final StylesTable styles;
+
+        /**
+         * 共有文字列のリスト。
+         */
+        private final List<String> sharedStrings;
+
+        /**
+         * 1904年を基準とする日付システムかどうか。
+         */
+        private final boolean date1904;
+
+        /**
+         * 解析中の行のセル。
+         */
+        private final List<StreamingCell> cells = new ArrayList<>();
+
+        /**
+         * 解析中のセルの値（{@code v}要素のテキスト）。
+         */
+        private final StringBuilder value = new StringBuilder();
+
+        /**
+         * 解析中のセルの数式（{@code f}要素のテキスト）。
+         */
+        private final StringBuilder formula = new StringBuilder();
+
+        /**
+         * 解析中の行インデックス。
+         */
+        private int rowIndex = -1;
+
+        /**
+         * 解析中のセルの列インデックス。
+         */
+        private int columnIndex = -1;
+
+        /**
+         * 解析中のセルの値の種類（{@code t}属性）。
+         */
+        private String type;
+
+        /**
+         * 解析中のセルのスタイルのインデックス（{@code s}属性）。
+         */
+        private String style;
+
+        /**
+         * 解析中のセルのインライン文字列。
+         */
+        private String inlineString;
+
+        /**
+         * 値（{@code v}）要素内かどうか。
+         */
+        private boolean inValue;
+
+        /**
+         * 数式（{@code f}）要素内かどうか。
+         */
+        private boolean inFormula;
+
+        /**
+         * 解析中のセルが数式を持つかどうか。
+         */
+        private boolean hasFormula;
+
+        /**
+         * 共有数式の変換に使用するワークブック。
+         */
+        private final FormulaWorkbook formulaWorkbook;
+
+        /**
+         * ワークシートのインデックス。
+         */
+        private final int sheetIndex;
+
+        /**
+         * 共有数式のインデックス（{@code si}属性）と、基準となる数式。
+         */
+        private final Map<String, SharedFormulaSource> sharedFormulas = new HashMap<>();
+
+        /**
+         * 解析中のセルが共有数式かどうか。
+         */
+        private boolean sharedFormula;
+
+        /**
+         * 解析中のセルの共有数式のインデックス（{@code si}属性）。
+         */
+        private String sharedIndex;
+
+        /**
+         * 解析中のセルの共有数式の範囲（{@code ref}属性、基準となる数式のセル以外は {@code null}）。
+         */
+        private String sharedRange;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param sheetName       ワークシート名
+         * @param handler         行を受け取るハンドラ
+         * @param styles          スタイル
+         * @param sharedStrings   共有文字列のリスト
+         * @param date1904        1904年を基準とする日付システムの場合は {@code true}
+         * @param formulaWorkbook 共有数式の変換に使用するワークブック
+         * @param sheetIndex      ワークシートのインデックス
+         */
+        SheetHandler(String sheetName, RowHandler handler, StylesTable styles, List<String> sharedStrings,
+                     boolean date1904, FormulaWorkbook formulaWorkbook, int sheetIndex) {
+            super("is");
+            this.sheetName = sheetName;
+            this.handler = handler;
+            this.styles = styles;
+            this.sharedStrings = sharedStrings;
+            this.date1904 = date1904;
+            this.formulaWorkbook = formulaWorkbook;
+            this.sheetIndex = sheetIndex;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            super.startElement(uri, localName, qName, attributes);
+            switch (localName) {
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    columnIndex = -1;
+                    cells.clear();
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    if (ref != null) {
+                        CellReference reference = new CellReference(ref);
+                        rowIndex = reference.getRow();
+                        columnIndex = reference.getCol();
+                    } else {
+                        columnIndex++;
+                    }
+                    type = attributes.getValue("t");
+                    style = attributes.getValue("s");
+                    value.setLength(0);
+                    formula.setLength(0);
+                    inlineString = null;
+                    hasFormula = false;
+                    sharedFormula = false;
+                    sharedIndex = null;
+                    sharedRange = null;
+                    break;
+                case "v":
+                    inValue = true;
+                    break;
+                case "f":
+                    inFormula = true;
+                    hasFormula = true;
+                    sharedFormula = "shared".equals(attributes.getValue("t"));
+                    sharedIndex = attributes.getValue("si");
+                    sharedRange = attributes.getValue("ref");
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            super.endElement(uri, localName, qName);
+            switch (localName) {
+                case "v":
+                    inValue = false;
+                    break;
+                case "f":
+                    inFormula = false;
+                    break;
+                case "c":
+                    StreamingCell cell = toCell();
+                    if (cell != null) {
+                        cells.add(cell);
+                    }
+                    break;
+                case "row":
+                    if (!cells.isEmpty()) {
+                        // ワークブック全体を読み込む場合と同様に、列の順に並べる
+                        List<StreamingCell> row = new ArrayList<>(cells);
+                        row.sort(Comparator.comparingInt(StreamingCell::getColumnIndex));
+                        handler.row(sheetName, rowIndex, row);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            super.characters(ch, start, length);
+            if (inValue) {
+                value.append(ch, start, length);
+            } else if (inFormula) {
+                formula.append(ch, start, length);
+            }
+        }
+
+        @Override
+        void text(String text) {
+            inlineString = text;
+        }
+
+        /**
+         * 解析したセルの情報からセルを生成します。
+         *
+         * @return セル（空のセルの場合は {@code null}）
+         */
+        private StreamingCell toCell() {
+            int valueType;
+            String cellValue = value.toString();
+            if ("s".equals(type)) {
+                valueType = Cell.CELL_TYPE_STRING;
+                cellValue = value.length() > 0 ? sharedStrings.get(Integer.parseInt(cellValue.trim())) : null;
+            } else if ("inlineStr".equals(type)) {
+                valueType = Cell.CELL_TYPE_STRING;
+                cellValue = inlineString;
+            } else if ("str".equals(type)) {
+                valueType = Cell.CELL_TYPE_STRING;
+            } else if ("b".equals(type)) {
+                valueType = Cell.CELL_TYPE_BOOLEAN;
+            } else if ("e".equals(type)) {
+                valueType = Cell.CELL_TYPE_ERROR;
+            } else {
+                valueType = Cell.CELL_TYPE_NUMERIC;
+            }
+            if (cellValue == null || (cellValue.isEmpty() && valueType != Cell.CELL_TYPE_STRING)) {
+                valueType = Cell.CELL_TYPE_BLANK;
+            }
+
+            if (!hasFormula && valueType == Cell.CELL_TYPE_BLANK) {
+                return null;
+            }
+
+            short formatIndex = 0;
+            if (style != null && !style.isEmpty()) {
+                formatIndex = styles.getStyleAt(Integer.parseInt(style)).getDataFormat();
+            }
+
+            return new StreamingCell(rowIndex, columnIndex,
+                    hasFormula ? Cell.CELL_TYPE_FORMULA : valueType, valueType, cellValue,
+                    hasFormula ? formula.toString() : null, sharedFormula ? toSharedFormulaSource() : null,
+                    formatIndex, getFormatPattern(styles, formatIndex), date1904);
+        }
+
+        /**
+         * 解析中のセルの共有数式の、基準となる数式を取得します。
+         * <p>
+         * ワークブック全体を読み込む場合と同様に、範囲（{@code ref}属性）と数式を持つセルの数式を基準とします。
+         *
+         * @return 基準となる数式（存在しない場合は数式を持たない基準）
+         */
+        private SharedFormulaSource toSharedFormulaSource() {
+            if (sharedRange != null && formula.length() > 0) {
+                sharedFormulas.put(sharedIndex, new SharedFormulaSource(sheetName, formula.toString(),
+                        CellRangeAddress.valueOf(sharedRange), formulaWorkbook, sheetIndex));
+            }
+            SharedFormulaSource source = sharedFormulas.get(sharedIndex);
+            if (source == null) {
+                source = new SharedFormulaSource(sheetName, null, null, formulaWorkbook, sheetIndex);
+                sharedFormulas.put(sharedIndex, source);
+            }
+            return source;
+        }
+
+    }
+
+    /**
+     * 共有数式の、基準となる数式を保持するクラスです。
+     * <p>
+     * ワークブック全体を読み込む場合と同様に、基準となる数式をPOIの数式パーサで解析し、
+     * 相対参照をセルの位置に合わせて移動（{@link SharedFormula}）して、数式の文字列に変換します。
+     * 解析は最初に数式を取得するときに1回のみ行います。
+     */
+    private static class SharedFormulaSource {
+
+        /**
+         * ワークシート名。
+         */
+        private final String sheetName;
+
+        /**
+         * 基準となる数式（存在しない場合は {@code null}）。
+         */
+        private final String formula;
+
+        /**
+         * 共有数式の範囲（基準となる数式が存在しない場合は {@code null}）。
+         */
+        private final CellRangeAddress range;
+
+        /**
+         * 数式の解析・変換に使用するワークブック。
+         */
+        private final FormulaWorkbook workbook;
+
+        /**
+         * ワークシートのインデックス。
+         */
+        private final int sheetIndex;
+
+        /**
+         * 解析した基準となる数式（未解析の場合は {@code null}）。
+         */
+        private Ptg[] ptgs;
+
+        /**
+         * 変換できない理由（変換できる場合は {@code null}）。
+         */
+        private String error;
+
+        /**
+         * 変換できないことを通知済みかどうか。
+         */
+        private boolean reported;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param sheetName  ワークシート名
+         * @param formula    基準となる数式（存在しない場合は {@code null}）
+         * @param range      共有数式の範囲（基準となる数式が存在しない場合は {@code null}）
+         * @param workbook   数式の解析・変換に使用するワークブック
+         * @param sheetIndex ワークシートのインデックス
+         */
+        SharedFormulaSource(String sheetName, String formula, CellRangeAddress range, FormulaWorkbook workbook,
+                            int sheetIndex) {
+            this.sheetName = sheetName;
+            this.formula = formula;
+            this.range = range;
+            this.workbook = workbook;
+            this.sheetIndex = sheetIndex;
+            this.error = formula == null ? "no master formula" : null;
+        }
+
+        /**
+         * 指定したセルの数式を取得します。
+         *
+         * @param rowIndex    行インデックス（0始まり）
+         * @param columnIndex 列インデックス（0始まり）
+         * @return 数式（先頭の {@code =} を含まない）
+         * @throws SharedFormulaException 数式を変換できない場合
+         */
+        String getFormula(int rowIndex, int columnIndex) {
+            if (ptgs == null && error == null) {
+                try {
+                    ptgs = FormulaParser.parse(formula, workbook, FormulaType.CELL, sheetIndex);
+                } catch (RuntimeException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error == null) {
+                try {
+                    Ptg[] shifted = new SharedFormula(SpreadsheetVersion.EXCEL2007).convertSharedFormulas(ptgs,
+                            rowIndex - range.getFirstRow(), columnIndex - range.getFirstColumn());
+                    return FormulaRenderer.toFormulaString(workbook, shifted);
+                } catch (RuntimeException e) {
+                    error = e.getMessage();
+                }
+            }
+            boolean first = !reported;
+            reported = true;
+            throw new SharedFormulaException(
+                    sheetName + "!" + new CellAddress(rowIndex, columnIndex).formatAsString(), error, first);
+        }
+
+    }
+
+    /**
+     * 共有数式の解析・変換に使用する、ワークシート名・名前の定義のみを保持するワークブックです。
+     * <p>
+     * ワークブック全体を読み込む場合と同じ数式の文字列となるように、
+     * ワークシートの参照・名前はOOXML形式のワークブックと同じ方法で解析・変換します。
+     * 外部参照（他のワークブックの参照）は変換できません。
+     */
+    private static class FormulaWorkbook implements FormulaParsingWorkbook, FormulaRenderingWorkbook {
+
+        /**
+         * ワークシート名のリスト（ワークブックでのワークシートの順）。
+         */
+        private final List<String> sheetNames;
+
+        /**
+         * 名前のリスト（ワークブックでの名前の順）。
+         */
+        private final List<String> names;
+
+        /**
+         * 名前の適用範囲（ワークシートのインデックス、ブックの場合は {@code -1}）のリスト。
+         */
+        private final List<Integer> nameSheetIndexes;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param sheetNames       ワークシート名のリスト
+         * @param names            名前のリスト
+         * @param nameSheetIndexes 名前の適用範囲のリスト
+         */
+        FormulaWorkbook(List<String> sheetNames, List<String> names, List<Integer> nameSheetIndexes) {
+            this.sheetNames = sheetNames;
+            this.names = names;
+            this.nameSheetIndexes = nameSheetIndexes;
+        }
+
+        @Override
+        public EvaluationName getName(String name, int sheetIndex) {
+            for (int i = 0; i < names.size(); i++) {
+                int nameSheetIndex = nameSheetIndexes.get(i);
+                if (name.equalsIgnoreCase(names.get(i)) && (nameSheetIndex == -1 || nameSheetIndex == sheetIndex)) {
+                    return new DefinedName(names.get(i), i);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Name createName() {
+            throw new IllegalStateException("Undefined names are not supported");
+        }
+
+        @Override
+        public Ptg getNameXPtg(String name, SheetIdentifier sheet) {
+            if (UDFFinder.DEFAULT.findFunction(name) != null) {
+                return new NameXPxg(null, name);
+            }
+            if (sheet == null) {
+                return names.stream().anyMatch(name::equalsIgnoreCase) ? new NameXPxg(null, name) : null;
+            }
+            checkInternal(sheet);
+            return new NameXPxg(sheet.getSheetIdentifier().getName(), name);
+        }
+
+        @Override
+        public Ptg get3DReferencePtg(CellReference cell, SheetIdentifier sheet) {
+            checkInternal(sheet);
+            return new Ref3DPxg(sheet, cell);
+        }
+
+        @Override
+        public Ptg get3DReferencePtg(AreaReference area, SheetIdentifier sheet) {
+            checkInternal(sheet);
+            return new Area3DPxg(sheet, area);
+        }
+
+        @Override
+        public int getExternalSheetIndex(String sheetName) {
+            return sheetNames.indexOf(sheetName);
+        }
+
+        @Override
+        public int getExternalSheetIndex(String workbookName, String sheetName) {
+            throw new IllegalStateException("External references are not supported");
+        }
+
+        @Override
+        public SpreadsheetVersion getSpreadsheetVersion() {
+            return SpreadsheetVersion.EXCEL2007;
+        }
+
+        @Override
+        public EvaluationWorkbook.ExternalSheet getExternalSheet(int externSheetIndex) {
+            throw new IllegalStateException("HSSF-style external references are not supported for XSSF");
+        }
+
+        @Override
+        public String getSheetFirstNameByExternSheet(int externSheetIndex) {
+            return sheetNames.get(externSheetIndex);
+        }
+
+        @Override
+        public String getSheetLastNameByExternSheet(int externSheetIndex) {
+            return sheetNames.get(externSheetIndex);
+        }
+
+        @Override
+        public String resolveNameXText(NameXPtg ptg) {
+            return names.get(ptg.getNameIndex());
+        }
+
+        @Override
+        public String getNameText(NamePtg namePtg) {
+            return names.get(namePtg.getIndex());
+        }
+
+        /**
+         * ワークシートの参照が、同じワークブック内の参照であることを確認します。
+         *
+         * @param sheet ワークシートの参照
+         * @throws IllegalStateException 外部参照の場合
+         */
+        private void checkInternal(SheetIdentifier sheet) {
+            if (sheet.getBookName() != null) {
+                throw new IllegalStateException("External references are not supported: " + sheet.getBookName());
+            }
+        }
+
+    }
+
+    /**
+     * ワークブックで定義された名前です。
+     */
+    private static class DefinedName implements EvaluationName {
+
+        /**
+         * 名前。
+         */
+        private final String name;
+
+        /**
+         * ワークブックでの名前のインデックス。
+         */
+        private final int index;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param name  名前
+         * @param index ワークブックでの名前のインデックス
+         */
+        DefinedName(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public String getNameText() {
+            return name;
+        }
+
+        @Override
+        public boolean isFunctionName() {
+            return false;
+        }
+
+        @Override
+        public boolean hasFormula() {
+            return true;
+        }
+
+        @Override
+        public Ptg[] getNameDefinition() {
+            throw new IllegalStateException("Name definitions are not loaded");
+        }
+
+        @Override
+        public boolean isRange() {
+            return true;
+        }
+
+        @Override
+        public NamePtg createPtg() {
+            return new NamePtg(index);
+        }
+
+    }
+
+    /**
+     * ワークシートの行を、行の順に読み込むカーソルです。
+     * <p>
+     * 2つの版のワークシートを並行して読み込むため、XMLをプル型で解析し、要求された行まで読み進めます。
+     * 解析は{@link SheetHandler}で行うため、セルの値はストリームで読み込む場合と同じとなります。
+     */
+    class SheetCursor implements Closeable {
+
+        /**
+         * ワークシートのXMLの入力ストリーム。
+         */
+        private final InputStream in;
+
+        /**
+         * ワークシートのXMLのリーダ。
+         */
+        private final XMLStreamReader xml;
+
+        /**
+         * ワークシートのXMLを解析するハンドラ。
+         */
+        private final SheetHandler handler;
+
+        /**
+         * ハンドラに渡す属性。
+         */
+        private final AttributesImpl attributes = new AttributesImpl();
+
+        /**
+         * 最後に読み込んだ行の行インデックス（読み込んでいない場合は {@code -1}）。
+         */
+        private int rowIndex = -1;
+
+        /**
+         * 最後に読み込んだ行のセル。
+         */
+        private List<StreamingCell> cells = Collections.emptyList();
+
+        /**
+         * XMLの終端まで読み込んだかどうか。
+         */
+        private boolean end;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param sheetName ワークシート名
+         * @param in        ワークシートのXMLの入力ストリーム
+         * @throws SAXException XMLの解析に失敗した場合
+         */
+        private SheetCursor(String sheetName, InputStream in) throws SAXException {
+            this.in = in;
+            this.handler = createSheetHandler(sheetName, (name, index, row) -> {
+                rowIndex = index;
+                cells = row;
+            });
+            try {
+                XMLInputFactory factory = XMLInputFactory.newInstance();
+                factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+                factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+                this.xml = factory.createXMLStreamReader(in);
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        /**
+         * 指定した行のセルを取得します。
+         * <p>
+         * 行インデックスの昇順に呼び出す必要があります。
+         *
+         * @param rowIndex 行インデックス（0始まり）
+         * @return 行のセル（列の順、空のセルは含みません。行が存在しない場合は空のリスト）
+         * @throws SAXException XMLの解析に失敗した場合
+         */
+        List<StreamingCell> getRow(int rowIndex) throws SAXException {
+            while (this.rowIndex < rowIndex && !end) {
+                next();
+            }
+            return this.rowIndex == rowIndex ? cells : Collections.emptyList();
+        }
+
+        /**
+         * 次の行（セルが存在する行）まで、XMLを解析します。
+         *
+         * @throws SAXException XMLの解析に失敗した場合
+         */
+        private void next() throws SAXException {
+            int current = rowIndex;
+            try {
+                while (current == rowIndex && xml.hasNext()) {
+                    switch (xml.next()) {
+                        case XMLStreamConstants.START_ELEMENT:
+                            attributes.clear();
+                            for (int i = 0; i < xml.getAttributeCount(); i++) {
+                                attributes.addAttribute(toString(xml.getAttributeNamespace(i)),
+                                        xml.getAttributeLocalName(i),
+                                        toQName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i)),
+                                        "CDATA", xml.getAttributeValue(i));
+                            }
+                            handler.startElement(toString(xml.getNamespaceURI()), xml.getLocalName(),
+                                    toQName(xml.getPrefix(), xml.getLocalName()), attributes);
+                            break;
+                        case XMLStreamConstants.END_ELEMENT:
+                            handler.endElement(toString(xml.getNamespaceURI()), xml.getLocalName(),
+                                    toQName(xml.getPrefix(), xml.getLocalName()));
+                            break;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                        case XMLStreamConstants.SPACE:
+                            handler.characters(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw new SAXException(e);
+            }
+            if (current == rowIndex) {
+                end = true;
+            }
+        }
+
+        /**
+         * 名前空間のURI・接頭辞を、SAXと同様に文字列に変換します。
+         *
+         * @param value 名前空間のURI・接頭辞
+         * @return 文字列（{@code null}の場合は空文字列）
+         */
+        private String toString(String value) {
+            return value != null ? value : "";
+        }
+
+        /**
+         * 接頭辞付きの名前を取得します。
+         *
+         * @param prefix    接頭辞
+         * @param localName ローカル名
+         * @return 接頭辞付きの名前
+         */
+        private String toQName(String prefix, String localName) {
+            return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                xml.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                in.close();
+            }
+        }
+
+    }
+
+    /**
+     * ストリームで読み込んだセルを表すクラスです。
+     * <p>
+     * 値の取得メソッドは、数式セルの場合はファイルに保存されている計算結果を返します。
+     */
+    static class StreamingCell implements CommonCell {
+
+        /**
+         * 行インデックス（0始まり）。
+         */
+        private final int rowIndex;
+
+        /**
+         * 列インデックス（0始まり）。
+         */
+        private final int columnIndex;
+
+        /**
+         * POIのセルの種類。
+         */
+        private final int cellType;
+
+        /**
+         * 値（数式セルの場合は保存されている計算結果）の種類。
+         */
+        private final int valueType;
+
+        /**
+         * ファイルに保存されている値（共有文字列・インライン文字列の場合は文字列）。
+         */
+        private final String value;
+
+        /**
+         * 数式（数式セル以外の場合は {@code null}）。
+         */
+        private final String formula;
+
+        /**
+         * 共有数式の基準となる数式（共有数式以外の場合は {@code null}）。
+         */
+        private final SharedFormulaSource sharedFormula;
+
+        /**
+         * 書式のインデックス。
+         */
+        private final short formatIndex;
+
+        /**
+         * 書式。
+         */
+        private final String formatPattern;
+
+        /**
+         * 1904年を基準とする日付システムかどうか。
+         */
+        private final boolean date1904;
+
+        /**
+         * コンストラクタです。
+         *
+         * @param rowIndex      行インデックス（0始まり）
+         * @param columnIndex   列インデックス（0始まり）
+         * @param cellType      POIのセルの種類
+         * @param valueType     値（数式セルの場合は保存されている計算結果）の種類
+         * @param value         ファイルに保存されている値
+         * @param formula       数式（数式セル以外の場合は {@code null}）
+         * @param sharedFormula 共有数式の基準となる数式（共有数式以外の場合は {@code null}）
+         * @param formatIndex   書式のインデックス
+         * @param formatPattern 書式
+         * @param date1904      1904年を基準とする日付システムの場合は {@code true}
+         */
+        StreamingCell(int rowIndex, int columnIndex, int cellType, int valueType, String value, String formula,
+                      SharedFormulaSource sharedFormula, short formatIndex, String formatPattern,
+                      boolean date1904) {
+            this.rowIndex = rowIndex;
+            this.columnIndex = columnIndex;
+            this.cellType = cellType;
+            this.valueType = valueType;
+            this.value = value;
+            this.formula = formula;
+            this.sharedFormula = sharedFormula;
+            this.formatIndex = formatIndex;
+            this.formatPattern = formatPattern;
+            this.date1904 = date1904;
+        }
+
+        /**
+         * 行インデックス（0始まり）を取得します。
+         *
+         * @return 行インデックス
+         */
+        int getRowIndex() {
+            return rowIndex;
+        }
+
+        /**
+         * 列インデックス（0始まり）を取得します。
+         *
+         * @return 列インデックス
+         */
+        int getColumnIndex() {
+            return columnIndex;
+        }
+
+        /**
+         * セルの種類を取得します。
+         *
+         * @return POIのセルの種類（{@link Cell#getCellType()}）
+         */
+        int getCellType() {
+            return cellType;
+        }
+
+        /**
+         * 値（数式セルの場合は保存されている計算結果）の種類を取得します。
+         *
+         * @return POIのセルの種類（値が存在しない場合は {@link Cell#CELL_TYPE_BLANK}）
+         */
+        int getValueType() {
+            return valueType;
+        }
+
+        /**
+         * ファイルに保存されている値を、変換せずに取得します。
+         *
+         * @return 値
+         */
+        String getRawValue() {
+            return value != null ? value : "";
+        }
+
+        /**
+         * 数式を取得します。
+         *
+         * @return 数式（先頭の {@code =} を含まない）
+         * @throws SharedFormulaException 共有数式の数式を変換できない場合
+         */
+        String getFormula() {
+            return sharedFormula != null ? sharedFormula.getFormula(rowIndex, columnIndex) : formula;
+        }
+
+        @Override
+        public short getFormatIndex() {
+            return formatIndex;
+        }
+
+        @Override
+        public String getFormatPattern() {
+            return formatPattern;
+        }
+
+        @Override
+        public boolean isText() {
+            return valueType == Cell.CELL_TYPE_STRING;
+        }
+
+        @Override
+        public boolean isBoolean() {
+            return valueType == Cell.CELL_TYPE_BOOLEAN;
+        }
+
+        @Override
+        public boolean isNumber() {
+            return valueType == Cell.CELL_TYPE_NUMERIC;
+        }
+
+        @Override
+        public String getTextCellValue() {
+            return getRawValue();
+        }
+
+        @Override
+        public boolean getBooleanCellValue() {
+            return "1".equals(value) || "true".equalsIgnoreCase(value);
+        }
+
+        @Override
+        public double getNumberCellValue() {
+            return Double.parseDouble(value);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * ワークブック全体を読み込む場合と同様に、数式セル以外のセルで日付として正しくない値（負の値等）は、
+         * 例外をスローします。
+         *
+         * @throws IllegalArgumentException 数式セル以外のセルで、日付として正しくない値の場合
+         */
+        @Override
+        public Date getDateCellValue() {
+            double number = getNumberCellValue();
+            if (cellType != Cell.CELL_TYPE_FORMULA && !DateUtil.isValidExcelDate(number)) {
+                throw new IllegalArgumentException("Invalid date value: " + value);
+            }
+            return ExcelDateUtils.convertJavaDate(number, date1904);
+        }
+
+        @Override
+        public boolean isDateStart1904() {
+            return date1904;
+        }
+
+        @Override
+        public String getCellAddress() {
+            return new CellAddress(rowIndex, columnIndex).formatAsString();
+        }
+
+    }
+
+}
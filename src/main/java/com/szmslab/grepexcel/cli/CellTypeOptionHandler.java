@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel.cli;
+
+import com.szmslab.grepexcel.GrepExcelCellType;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.OptionDef;
+import org.kohsuke.args4j.spi.EnumOptionHandler;
+import org.kohsuke.args4j.spi.Setter;
+
+import java.util.ResourceBundle;
+
+/**
+ * セルの種類を{@link GrepExcelCellType}にマッピングするオプションハンドラクラスです。
+ * <p>
+ * ヘルプの表示幅が広がらないよう、指定可能な値の一覧ではなく{@link OptionDef#metaVar()}を表示します。
+ *
+ * @author szmslab
+ */
+public class CellTypeOptionHandler extends EnumOptionHandler<GrepExcelCellType> {
+
+    public CellTypeOptionHandler(CmdLineParser parser, OptionDef option, Setter<? super GrepExcelCellType> setter) {
+        super(parser, option, setter, GrepExcelCellType.class);
+    }
+
+    @Override
+    public String getMetaVariable(ResourceBundle rb) {
+        return option.metaVar();
+    }
+
+}
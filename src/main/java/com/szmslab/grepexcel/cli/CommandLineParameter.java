@@ -6,6 +6,8 @@
  */
 package com.szmslab.grepexcel.cli;
 
+import com.szmslab.grepexcel.GrepExcelCellType;
+import com.szmslab.grepexcel.GrepExcelExecutionMode;
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
@@ -43,6 +45,70 @@ class CommandLineParameter {
     @Argument(index = 1, metaVar = META_VAR_PATH_LIST, required = true, handler = ExistingPathOptionHandler.class, hidden = true)
     List<Path> pathList = new ArrayList<>();
 
+    /**
+     * オプション（検索結果の後に出力する行数）。
+     */
+    @Option(name = "-A", aliases = {"--after-context"}, metaVar = "NUM",
+            usage = "print NUM rows of trailing context")
+    Integer afterRows;
+
+    /**
+     * オプション（検索結果の前に出力する行数）。
+     */
+    @Option(name = "-B", aliases = {"--before-context"}, metaVar = "NUM",
+            usage = "print NUM rows of leading context")
+    Integer beforeRows;
+
+    /**
+     * オプション（検索結果の前後に出力する行数）。
+     */
+    @Option(name = "-C", aliases = {"--context"}, metaVar = "NUM",
+            usage = "print NUM rows of context (same as -A NUM -B NUM)")
+    int contextRows;
+
+    /**
+     * オプション（検索結果の前（左）に出力する列数）。
+     */
+    @Option(name = "-L", aliases = {"--left-context"}, metaVar = "NUM",
+            usage = "print NUM columns of context to the left")
+    int beforeColumns;
+
+    /**
+     * オプション（検索結果の後（右）に出力する列数）。
+     */
+    @Option(name = "-R", aliases = {"--right-context"}, metaVar = "NUM",
+            usage = "print NUM columns of context to the right")
+    int afterColumns;
+
+    /**
+     * オプション（検索対象とするセル範囲）。
+     */
+    @Option(name = "-a", aliases = {"--range"}, metaVar = "RANGE",
+            usage = "search only cells in RANGE (e.g. A1:F100, A:F, 1:100)")
+    String range;
+
+    /**
+     * オプション（数式セルの計算結果として、ファイルに保存されている値を使用する）。
+     */
+    @Option(name = "-c", aliases = {"--cached-result"}, depends = {"-f"},
+            usage = "use calculated result of formula stored in file instead of recalculating it")
+    boolean cachedFormulaResult;
+
+    /**
+     * オプション（比較する古い版のファイル・ディレクトリパス）。
+     */
+    @Option(name = "-d", aliases = {"--diff"}, metaVar = "OLD", handler = ExistingPathOptionHandler.class,
+            forbids = {"-A", "-B", "-C", "-L", "-R", "-q", "-z"},
+            usage = "search only cells added or changed since OLD")
+    Path diffPath;
+
+    /**
+     * オプション（検索対象とするワークシート名の正規表現）。
+     */
+    @Option(name = "-e", aliases = {"--sheet-regex"}, metaVar = "REGEX", forbids = {"-n"},
+            usage = "search only sheets whose name contains a match to REGEX")
+    String sheetNamePattern;
+
     /**
      * オプション（数式セルの計算結果を検索する）。
      */
@@ -67,12 +133,34 @@ class CommandLineParameter {
     @Option(name = "-l", aliases = {"--literal"}, usage = "enable literal parsing of the pattern")
     boolean literal;
 
+    /**
+     * オプション（検索処理の実行方法）。
+     */
+    @Option(name = "-m", aliases = {"--mode"}, metaVar = "MODE", handler = ExecutionModeOptionHandler.class,
+            forbids = {"-p"},
+            usage = "perform search processing in MODE (sequential, parallel, auto)")
+    GrepExcelExecutionMode executionMode;
+
+    /**
+     * オプション（検索対象とするワークシート名）。
+     */
+    @Option(name = "-n", aliases = {"--sheet-name"}, metaVar = "GLOB", forbids = {"-e"},
+            usage = "search only sheets whose name matches GLOB (wildcards: * and ?)")
+    List<String> sheetNameList = new ArrayList<>();
+
     /**
      * オプション（検索処理を並列実行する）。
      */
-    @Option(name = "-p", aliases = {"--parallel"}, usage = "perform search processing in parallel")
+    @Option(name = "-p", aliases = {"--parallel"}, forbids = {"-m"}, usage = "perform search processing in parallel")
     boolean parallel;
 
+    /**
+     * オプション（検索パターンを行単位のクエリとして解釈する）。
+     */
+    @Option(name = "-q", aliases = {"--query"}, forbids = {"-A", "-B", "-C", "-L", "-R"},
+            usage = "interpret PATTERN as a row query and print matching rows")
+    boolean query;
+
     /**
      * オプション（ディレクトリを再帰的に検索する）。
      */
@@ -85,25 +173,60 @@ class CommandLineParameter {
     @Option(name = "-s", aliases = {"--summary"}, usage = "print a summary of results")
     boolean summary;
 
+    /**
+     * オプション（検索対象とするセルの種類）。
+     */
+    @Option(name = "-t", aliases = {"--type"}, metaVar = "TYPE", handler = CellTypeOptionHandler.class,
+            usage = "search only cells of TYPE (string, numeric, boolean, formula, error)")
+    List<GrepExcelCellType> cellTypeList = new ArrayList<>();
+
     /**
      * オプション（バージョンを表示する）。
      */
     @Option(name = "-v", aliases = {"--version"}, usage = "display version information and exit", help = true)
     boolean version;
 
+    /**
+     * オプション（暗号化されたワークブックのパスワード）。
+     */
+    @Option(name = "-w", aliases = {"--password"}, metaVar = "PASSWORD",
+            usage = "open encrypted files with PASSWORD (can be specified more than once)")
+    List<String> passwordList = new ArrayList<>();
+
+    /**
+     * オプション（アーカイブファイル内のExcelファイルを検索する）。
+     */
+    @Option(name = "-z", aliases = {"--archive"}, usage = "search Excel files in archives")
+    boolean archive;
+
     @Override
     public String toString() {
         return "{" +
                 "patternText=" + patternText +
                 ", pathList=" + pathList +
+                ", afterRows=" + afterRows +
+                ", beforeRows=" + beforeRows +
+                ", contextRows=" + contextRows +
+                ", beforeColumns=" + beforeColumns +
+                ", afterColumns=" + afterColumns +
+                ", range=" + range +
+                ", cachedFormulaResult=" + cachedFormulaResult +
+                ", diffPath=" + diffPath +
+                ", sheetNamePattern=" + sheetNamePattern +
                 ", formulaResult=" + formulaResult +
                 ", help=" + help +
                 ", ignoreCase=" + ignoreCase +
                 ", literal=" + literal +
+                ", executionMode=" + executionMode +
+                ", sheetNameList=" + sheetNameList +
                 ", parallel=" + parallel +
+                ", query=" + query +
                 ", recursive=" + recursive +
                 ", summary=" + summary +
+                ", cellTypeList=" + cellTypeList +
                 ", version=" + version +
+                ", passwordList=" + passwordList.size() +
+                ", archive=" + archive +
                 "}";
     }
 
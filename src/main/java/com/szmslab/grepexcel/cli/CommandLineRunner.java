@@ -7,10 +7,14 @@
 package com.szmslab.grepexcel.cli;
 
 import com.szmslab.grepexcel.GrepExcel;
+import com.szmslab.grepexcel.GrepExcelCellType;
+import com.szmslab.grepexcel.GrepExcelExecutionMode;
+import com.szmslab.grepexcel.GrepExcelResult;
 import com.szmslab.grepexcel.GrepExcelResultSummary;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.ParserProperties;
+import org.apache.poi.ss.util.CellAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,7 +23,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -31,11 +37,6 @@ import java.util.stream.Stream;
  */
 class CommandLineRunner {
 
-    /**
-     * ロガー。
-     */
-    private static final Logger LOG = LoggerFactory.getLogger(CommandLineRunner.class);
-
     /**
      * コマンド名。
      */
@@ -43,13 +44,16 @@ class CommandLineRunner {
 
     /**
      * コマンドを実行します。
+     * <p>
+     * ヘルプ・バージョンの表示ではロギングの初期化（設定ファイルの読み込み）を行わないよう、
+     * ロガーは検索処理を実行する場合にのみ取得します。
+     * セル範囲（-a）・クエリ（-q）等の書式が正しくない場合は、検索を実行せずに
+     * コマンドライン引数が不正な場合と同様にエラーメッセージと使い方を表示します。
      *
      * @param args コマンドライン引数
      * @return 正常に処理が終了した場合は {@code 0}
      */
     int run(String... args) {
-        LOG.debug("args: {}", Arrays.asList(args));
-
         CommandLineParameter parameter = new CommandLineParameter();
         CmdLineParser parser = new CmdLineParser(
                 parameter,
@@ -57,8 +61,16 @@ class CommandLineRunner {
                         .withShowDefaults(false)
                         .withUsageWidth(120));
 
+        GrepExcel grepExcel = null;
         try {
             parser.parseArgument(args);
+            if (parameter.diffPath != null && parameter.pathList.size() != 1) {
+                throw new CmdLineException(parser, "Option \"-d (--diff)\" takes only one "
+                        + CommandLineParameter.META_VAR_PATH_LIST, null);
+            }
+            if (!parameter.help && !parameter.version) {
+                grepExcel = createValidGrepExcel(parser, parameter);
+            }
         } catch (CmdLineException e) {
             System.err.println(e.getMessage());
             System.err.println();
@@ -66,34 +78,59 @@ class CommandLineRunner {
             return 1;
         }
 
-        LOG.debug("parameter: {}", parameter);
-
         if (parameter.help) {
             help(parser, System.out);
         } else if (parameter.version) {
             version();
         } else {
-            grep(parameter);
+            Logger log = LoggerFactory.getLogger(CommandLineRunner.class);
+            log.debug("parameter: {}", parameter);
+            grep(grepExcel, parameter);
         }
         return 0;
     }
 
+    /**
+     * コマンドライン引数に従って設定した{@link GrepExcel}を生成し、クエリを指定した場合はクエリの書式を確認します。
+     *
+     * @param parser    コマンドライン引数のパーサ
+     * @param parameter {@link CmdLineParser}によりパースされたコマンドライン引数
+     * @return 設定済みの{@link GrepExcel}
+     * @throws CmdLineException セル範囲・ワークシート名の正規表現・クエリ等の書式が正しくない場合
+     */
+    private GrepExcel createValidGrepExcel(CmdLineParser parser, CommandLineParameter parameter)
+            throws CmdLineException {
+        try {
+            GrepExcel grepExcel = createGrepExcel(parameter);
+            if (parameter.query) {
+                grepExcel.validateQuery(parameter.patternText);
+            }
+            return grepExcel;
+        } catch (IllegalArgumentException e) {
+            throw new CmdLineException(parser, e.getMessage(), e);
+        }
+    }
+
     /**
      * {@link GrepExcel}を使用して、Excelファイル内の文字列を検索します。
      *
+     * @param grepExcel 設定済みの{@link GrepExcel}
      * @param parameter {@link CmdLineParser}によりパースされたコマンドライン引数
      */
-    private void grep(CommandLineParameter parameter) {
+    private void grep(GrepExcel grepExcel, CommandLineParameter parameter) {
+        boolean context = grepExcel.beforeRows() > 0 || grepExcel.afterRows() > 0
+                || grepExcel.beforeColumns() > 0 || grepExcel.afterColumns() > 0;
+        Path[] paths = parameter.pathList.toArray(new Path[parameter.pathList.size()]);
+
         long startTime = System.currentTimeMillis();
-        GrepExcelResultSummary summary =
-                new GrepExcel()
-                        .ignoreCase(parameter.ignoreCase)
-                        .literal(parameter.literal)
-                        .formulaResult(parameter.formulaResult)
-                        .recursive(parameter.recursive)
-                        .parallel(parameter.parallel)
-                        .grep(parameter.patternText,
-                                parameter.pathList.toArray(new Path[parameter.pathList.size()]));
+        GrepExcelResultSummary summary;
+        if (parameter.query) {
+            summary = grepExcel.query(parameter.patternText, paths);
+        } else if (parameter.diffPath != null) {
+            summary = grepExcel.diff(parameter.patternText, parameter.diffPath, paths[0]);
+        } else {
+            summary = grepExcel.grep(parameter.patternText, paths);
+        }
         long runningTime = (System.currentTimeMillis() - startTime);
 
         long totalMemory = Runtime.getRuntime().totalMemory();
@@ -103,14 +140,29 @@ class CommandLineRunner {
             System.out.println("--- Result -------------------------------------------------------------");
         }
 
-        summary.resultFileList.stream()
-                .flatMap(rf -> rf.resultList.stream())
-                .forEach(r ->
-                        System.out.println("["
-                                + r.filePath + "]["
-                                + r.sheetName + "]["
-                                + r.cellAddress + "] "
-                                + r.cellValue));
+        if (context) {
+            summary.allResultList()
+                    .forEach(r -> {
+                        System.out.println("--");
+                        List<GrepExcelResult> lines = new ArrayList<>(r.contextList);
+                        lines.add(r);
+                        lines.sort(Comparator.comparing(line -> new CellAddress(line.cellAddress)));
+                        lines.forEach(line -> System.out.println("["
+                                + line.filePath + "]["
+                                + line.sheetName + "]["
+                                + line.cellAddress + "]"
+                                + (line == r ? " " : "- ")
+                                + line.cellValue));
+                    });
+        } else {
+            summary.allResultList()
+                    .forEach(r ->
+                            System.out.println("["
+                                    + r.filePath + "]["
+                                    + r.sheetName + "]["
+                                    + r.cellAddress + "] "
+                                    + r.cellValue));
+        }
 
         if (parameter.summary) {
             double mib = 1024 * 1024;
@@ -119,18 +171,53 @@ class CommandLineRunner {
             final String fmt = "[%" + summary.resultFileList.stream()
                     .mapToInt(rf -> String.valueOf(rf.resultList.size()).length()).max().orElse(0) + "d]";
             summary.resultFileList
-                    .forEach(rf -> System.out.println(String.format(fmt, rf.resultList.size()) + " : " + rf.file));
+                    .forEach(rf -> System.out.println(String.format(fmt, rf.resultList.size()) + " : " + rf.filePath));
             System.out.println();
             System.out.println("--- Result Summary (Total) ---------------------------------------------");
             System.out.println("number of files (matches/total) : "
                     + summary.matchFileCount() + "/" + summary.targetFileCount());
-            System.out.println("number of matches               : " + summary.allResultList().size());
+            System.out.println("number of matches               : " + summary.matchCount());
             System.out.println("running time                    : " + (runningTime / 1000D) + "s");
             System.out.println("memory (used/total)             : "
                     + String.format("%.1fMB/%.1fMB", usedMemory / mib, totalMemory / mib));
         }
     }
 
+    /**
+     * コマンドライン引数に従って設定した{@link GrepExcel}を生成します。
+     * <p>
+     * ワークシート名のワイルドカード（-n）と正規表現（-e）は同じ設定を上書きするため、
+     * 正規表現は指定された場合にのみ設定します。
+     *
+     * @param parameter {@link CmdLineParser}によりパースされたコマンドライン引数
+     * @return 設定済みの{@link GrepExcel}
+     */
+    GrepExcel createGrepExcel(CommandLineParameter parameter) {
+        GrepExcel grepExcel =
+                new GrepExcel()
+                        .ignoreCase(parameter.ignoreCase)
+                        .literal(parameter.literal)
+                        .formulaResult(parameter.formulaResult)
+                        .cachedFormulaResult(parameter.cachedFormulaResult)
+                        .recursive(parameter.recursive)
+                        .executionMode(Optional.ofNullable(parameter.executionMode).orElse(
+                                parameter.parallel ? GrepExcelExecutionMode.PARALLEL : GrepExcelExecutionMode.SEQUENTIAL))
+                        .archive(parameter.archive)
+                        .sheetName(parameter.sheetNameList.toArray(new String[parameter.sheetNameList.size()]))
+                        .range(parameter.range)
+                        .cellTypes(parameter.cellTypeList.toArray(
+                                new GrepExcelCellType[parameter.cellTypeList.size()]))
+                        .beforeRows(Optional.ofNullable(parameter.beforeRows).orElse(parameter.contextRows))
+                        .afterRows(Optional.ofNullable(parameter.afterRows).orElse(parameter.contextRows))
+                        .beforeColumns(parameter.beforeColumns)
+                        .afterColumns(parameter.afterColumns)
+                        .passwords(parameter.passwordList.toArray(new String[parameter.passwordList.size()]));
+        if (parameter.sheetNamePattern != null) {
+            grepExcel.sheetNamePattern(parameter.sheetNamePattern);
+        }
+        return grepExcel;
+    }
+
     /**
      * ヘルプを表示します。
      *
@@ -148,6 +235,13 @@ class CommandLineRunner {
                 + ". ("
                 + Stream.of(GrepExcel.availableExtensions()).map(ext -> "." + ext).collect(Collectors.joining(", "))
                 + ")");
+        out.println("With -z, Excel files in archives are also searched. ("
+                + Stream.of(GrepExcel.availableArchiveExtensions()).map(ext -> "." + ext).collect(Collectors.joining(", "))
+                + ")");
+        out.println("With -d, FILE is compared with OLD (files in directories are paired by relative path).");
+        out.println("With -m auto, parallelism and reader are chosen from file sizes, heap and CPUs "
+                + "(large .xlsx files are streamed; the plan is logged to stderr).");
+        out.println("With -q, PATTERN is a row query such as 'B =~ /foo/ && (D =~ /bar/ || !(E !~ /baz/))'.");
         out.println();
         out.println("Options:");
         parser.printUsage(out);
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel.cli;
+
+import com.szmslab.grepexcel.GrepExcelExecutionMode;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.OptionDef;
+import org.kohsuke.args4j.spi.EnumOptionHandler;
+import org.kohsuke.args4j.spi.Setter;
+
+import java.util.ResourceBundle;
+
+/**
+ * 検索処理の実行方法を{@link GrepExcelExecutionMode}にマッピングするオプションハンドラクラスです。
+ * <p>
+ * ヘルプの表示幅が広がらないよう、指定可能な値の一覧ではなく{@link OptionDef#metaVar()}を表示します。
+ *
+ * @author szmslab
+ */
+public class ExecutionModeOptionHandler extends EnumOptionHandler<GrepExcelExecutionMode> {
+
+    public ExecutionModeOptionHandler(CmdLineParser parser, OptionDef option, Setter<? super GrepExcelExecutionMode> setter) {
+        super(parser, option, setter, GrepExcelExecutionMode.class);
+    }
+
+    @Override
+    public String getMetaVariable(ResourceBundle rb) {
+        return option.metaVar();
+    }
+
+}
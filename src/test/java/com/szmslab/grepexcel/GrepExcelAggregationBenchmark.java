@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 並列実行した検索処理の結果を集約する処理のベンチマークです。
+ * <p>
+ * Excelファイルは読み込まず、10ファイルに1つの割合で3件の検索結果を持つファイル単位の検索結果を生成し、
+ * 集約から件数の集計・全件の参照までの時間を計測します。
+ * <ul>
+ * <li>{@code slots}: ファイルのインデックスごとの格納先に保持し、格納先の順に連結する（検索処理の実装）</li>
+ * <li>{@code cow}: 共有する{@link CopyOnWriteArrayList}に追加し、パスの順にソートする（従来の実装）</li>
+ * </ul>
+ * 引数は {@code ファイル数[,ファイル数...] [slots|cow] [並列度]} です（省略時は 10000,100000,1000000 slots CPU数）。
+ *
+ * @author szmslab
+ */
+public class GrepExcelAggregationBenchmark {
+
+    /**
+     * 計測の回数（最初の回はウォームアップを兼ねます）。
+     */
+    private static final int ROUNDS = 3;
+
+    /**
+     * ベンチマークを実行します。
+     *
+     * @param args ファイル数（カンマ区切り）、集約方法、並列度
+     * @throws Exception 実行に失敗した場合
+     */
+    public static void main(String[] args) throws Exception {
+        int[] fileCounts = Arrays.stream((args.length > 0 ? args[0] : "10000,100000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        boolean cow = args.length > 1 && args[1].equals("cow");
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", String.valueOf(parallelism));
+
+        for (int fileCount : fileCounts) {
+            Path[] files = createFiles(fileCount);
+            for (int round = 1; round <= ROUNDS; round++) {
+                long startTime = System.nanoTime();
+                GrepExcelResultSummary summary = cow ? aggregateCopyOnWrite(files) : aggregateSlots(files);
+                long valueLength = 0;
+                for (GrepExcelResult result : summary.allResultList()) {
+                    valueLength += result.cellValue.length();
+                }
+                long runningTime = (System.nanoTime() - startTime) / 1000000;
+                System.out.println(String.format("%s files=%d parallelism=%d round=%d: %dms "
+                                + "(matchFiles=%d, matches=%d, valueLength=%d)",
+                        cow ? "cow" : "slots", fileCount, parallelism, round, runningTime,
+                        summary.matchFileCount(), summary.matchCount(), valueLength));
+            }
+        }
+    }
+
+    /**
+     * ファイルのインデックスごとの格納先に保持して集約します。
+     *
+     * @param files 検索対象のファイルパス
+     * @return Excelファイル検索結果（全体）
+     */
+    private static GrepExcelResultSummary aggregateSlots(Path[] files) {
+        Path[] sorted = files.clone();
+        Arrays.sort(sorted);
+        GrepExcelExecutionPlan plan = GrepExcelExecutionPlan.create(GrepExcelExecutionMode.PARALLEL, sorted, false);
+        GrepExcelResultFile[][] results = new GrepExcelResultFile[sorted.length][];
+        plan.forEach(sorted.length, i -> results[i] = new GrepExcelResultFile[]{createResultFile(sorted[i])});
+        return new GrepExcelResultSummary(results);
+    }
+
+    /**
+     * 共有する{@link CopyOnWriteArrayList}に追加し、パスの順にソートして集約します。
+     *
+     * @param files 検索対象のファイルパス
+     * @return Excelファイル検索結果（全体）
+     */
+    private static GrepExcelResultSummary aggregateCopyOnWrite(Path[] files) {
+        List<GrepExcelResultFile> resultFiles = new CopyOnWriteArrayList<>();
+        Arrays.stream(files).parallel().forEach(file -> resultFiles.addAll(
+                Collections.singletonList(createResultFile(file))));
+        resultFiles.sort(Comparator
+                .comparing((GrepExcelResultFile rf) -> rf.file)
+                .thenComparing(rf -> rf.filePath));
+        GrepExcelResultSummary summary = new GrepExcelResultSummary(false);
+        summary.resultFileList.addAll(resultFiles);
+        return summary;
+    }
+
+    /**
+     * 検索対象のファイルパスを、パスの順に並ばないように生成します。
+     *
+     * @param fileCount ファイル数
+     * @return 検索対象のファイルパス
+     */
+    private static Path[] createFiles(int fileCount) {
+        Path[] files = new Path[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            files[i] = Paths.get("data", "d" + (i % 97), "f" + i + ".xlsx");
+        }
+        List<Path> list = Arrays.asList(files);
+        Collections.shuffle(list, new Random(1));
+        return files;
+    }
+
+    /**
+     * ファイル単位の検索結果を生成します。
+     *
+     * @param file ファイルパス
+     * @return Excelファイル検索結果（ファイル単位、10ファイルに1つの割合で3件の検索結果を持つ）
+     */
+    private static GrepExcelResultFile createResultFile(Path file) {
+        GrepExcelResultList resultList = new GrepExcelResultList();
+        if (file.getFileName().toString().hashCode() % 10 == 0) {
+            int locationId = resultList.locationId(file.toString(), "Sheet1");
+            for (int row = 0; row < 3; row++) {
+                resultList.add(locationId, row, 0, "value" + row);
+            }
+        }
+        return new GrepExcelResultFile(file, file.toString(), resultList);
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * 2つの版のExcelファイルの比較（{@link GrepExcel#diff(String, Path, Path)}）のテストクラスです。
+ * <p>
+ * ストリームで読み込んだ比較結果が、ワークブック全体を読み込んだ比較結果と一致することを確認します。
+ *
+ * @author szmslab
+ */
+public class GrepExcelDiffTest {
+
+    /**
+     * 一時フォルダ。
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * 古い版のExcelファイル。
+     */
+    private Path oldFile;
+
+    /**
+     * 新しい版のExcelファイル。
+     */
+    private Path newFile;
+
+    /**
+     * 比較対象のExcelファイルを作成します。
+     * <p>
+     * 新しい版は、Dataワークシートのセルの書式・値の変更、セル・ワークシートの追加を行い、
+     * Sameワークシートは変更しません（共有文字列・スタイルは追加されます）。
+     *
+     * @throws Exception 作成に失敗した場合
+     */
+    @Before
+    public void setUp() throws Exception {
+        oldFile = temporaryFolder.newFolder("old").toPath().resolve("book.xlsx");
+        newFile = temporaryFolder.newFolder("new").toPath().resolve("book.xlsx");
+        for (Path file : Arrays.asList(oldFile, newFile)) {
+            try (Workbook book = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+                Sheet same = book.createSheet("Same");
+                for (int i = 0; i < 5; i++) {
+                    same.createRow(i).createCell(0).setCellValue("foo same" + i);
+                }
+                Sheet sheet = book.createSheet("Data");
+                for (int i = 0; i < 10; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("foo" + i);
+                    row.createCell(1).setCellValue(i * 1.5);
+                    row.createCell(2).setCellFormula("B" + (i + 1) + "*2");
+                }
+                if (file == newFile) {
+                    CellStyle style = book.createCellStyle();
+                    style.setDataFormat(book.createDataFormat().getFormat("\"Ref-\"@"));
+                    sheet.getRow(3).getCell(0).setCellStyle(style);
+                    sheet.getRow(5).getCell(0).setCellValue("foo changed");
+                    sheet.getRow(7).getCell(1).setCellValue(99);
+                    sheet.getRow(8).getCell(2).setCellFormula("B9*3");
+                    sheet.createRow(20).createCell(4).setCellValue("foo added");
+                    book.createSheet("New").createRow(0).createCell(0).setCellValue("foo new");
+                }
+                book.getCreationHelper().createFormulaEvaluator().evaluateAll();
+                book.write(out);
+            }
+        }
+    }
+
+    @Test
+    public void diff() {
+        assertThat(toStrings(new GrepExcel().diff(".", oldFile, newFile)),
+                is(Arrays.asList("Data!A4=Ref-foo3", "Data!A6=foo changed", "Data!B8=99", "Data!C9==B9*3",
+                        "Data!E21=foo added", "New!A1=foo new")));
+    }
+
+    @Test
+    public void diffFormulaResult() {
+        assertThat(assertSameResult(new GrepExcel(), "."),
+                is(Arrays.asList("Data!A4=Ref-foo3", "Data!A6=foo changed", "Data!B8=99", "Data!C8=198",
+                        "Data!C9=36", "Data!E21=foo added", "New!A1=foo new")));
+        assertThat(assertSameResult(new GrepExcel().cellTypes(GrepExcelCellType.STRING), "foo"),
+                is(Arrays.asList("Data!A4=Ref-foo3", "Data!A6=foo changed", "Data!E21=foo added",
+                        "New!A1=foo new")));
+        assertThat(assertSameResult(new GrepExcel().range("A1:B6"), "."),
+                is(Arrays.asList("Data!A4=Ref-foo3", "Data!A6=foo changed", "New!A1=foo new")));
+    }
+
+    @Test
+    public void diffFormatChanged() {
+        assertThat(toStrings(new GrepExcel().diff("Ref-", oldFile, newFile)),
+                is(Arrays.asList("Data!A4=Ref-foo3")));
+        assertThat(assertSameResult(new GrepExcel(), "Ref-"), is(Arrays.asList("Data!A4=Ref-foo3")));
+    }
+
+    @Test
+    public void unchangedSheet() throws Exception {
+        OPCPackage oldPkg = OPCPackage.open(oldFile.toFile(), PackageAccess.READ);
+        OPCPackage newPkg = OPCPackage.open(newFile.toFile(), PackageAccess.READ);
+        try {
+            GrepExcelStreamingReader oldReader = new GrepExcelStreamingReader(oldPkg);
+            GrepExcelStreamingReader newReader = new GrepExcelStreamingReader(newPkg);
+
+            assertThat(newReader.isCompatibleWith(oldReader), is(true));
+            assertThat(newReader.isSameSheetPart(oldReader, "Same"), is(true));
+            assertThat(newReader.isSameSheetPart(oldReader, "Data"), is(false));
+        } finally {
+            newPkg.revert();
+            oldPkg.revert();
+        }
+    }
+
+    /**
+     * ストリームで読み込んだ比較結果が、ワークブック全体を読み込んだ比較結果と一致することを確認します。
+     * <p>
+     * 数式の計算結果を比較する場合、保存されている値を使用するとストリームで読み込み、
+     * 再計算するとワークブック全体を読み込みます（再計算した値は保存されている値と同じです）。
+     *
+     * @param grepExcel   検索の設定
+     * @param patternText 検索パターン
+     * @return 比較結果
+     */
+    private List<String> assertSameResult(GrepExcel grepExcel, String patternText) {
+        List<String> streaming = toStrings(grepExcel.formulaResult(true).cachedFormulaResult(true)
+                .diff(patternText, oldFile, newFile));
+        List<String> usermodel = toStrings(grepExcel.cachedFormulaResult(false)
+                .diff(patternText, oldFile, newFile));
+
+        assertThat(streaming, is(usermodel));
+        return streaming;
+    }
+
+    /**
+     * 比較結果を文字列のリストに変換します。
+     *
+     * @param summary 比較結果
+     * @return "ワークシート名!セルのアドレス=セルの値" のリスト
+     */
+    private List<String> toStrings(GrepExcelResultSummary summary) {
+        return summary.allResultList().stream()
+                .map(result -> result.sheetName + "!" + result.cellAddress + "=" + result.cellValue)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link GrepExcelQuery}のテストクラスです。
+ *
+ * @author szmslab
+ */
+public class GrepExcelQueryTest {
+
+    @Test
+    public void andBindsTighterThanOr() {
+        GrepExcelQuery query = new GrepExcelQuery("A =~ /x/ || B =~ /y/ && C =~ /z/", 0);
+
+        assertThat(query.matches(row("x", "-", "-")::get), is(true));
+        assertThat(query.matches(row("-", "y", "-")::get), is(false));
+        assertThat(query.matches(row("-", "y", "z")::get), is(true));
+
+        GrepExcelQuery grouped = new GrepExcelQuery("(A =~ /x/ || B =~ /y/) && C =~ /z/", 0);
+
+        assertThat(grouped.matches(row("x", "-", "-")::get), is(false));
+        assertThat(grouped.matches(row("x", "-", "z")::get), is(true));
+    }
+
+    @Test
+    public void nestedNotAndParentheses() {
+        GrepExcelQuery query = new GrepExcelQuery("!(A =~ /a/ && !(B !~ /b/))", 0);
+
+        assertThat(query.matches(row("a", "b")::get), is(false));
+        assertThat(query.matches(row("a", "-")::get), is(true));
+        assertThat(query.matches(row("-", "b")::get), is(true));
+
+        GrepExcelQuery doubleNot = new GrepExcelQuery("!!A=~/a/&&((B=~/b/))", 0);
+
+        assertThat(doubleNot.matches(row("a", "b")::get), is(true));
+        assertThat(doubleNot.matches(row("-", "b")::get), is(false));
+    }
+
+    @Test
+    public void columnNames() {
+        GrepExcelQuery query = new GrepExcelQuery("aa =~ /^z$/", 0);
+        String[] values = new String[27];
+        Arrays.fill(values, "");
+        values[26] = "z";
+
+        assertThat(query.matches(row(values)::get), is(true));
+    }
+
+    @Test
+    public void escapedSlash() {
+        GrepExcelQuery query = new GrepExcelQuery("A =~ /^a\\/b$/ && B =~ /\\d+\\/\\w/", 0);
+
+        assertThat(query.matches(row("a/b", "12/x")::get), is(true));
+        assertThat(query.matches(row("a/b", "ab/x")::get), is(false));
+        assertThat(query.matches(row("a\\/b", "12/x")::get), is(false));
+    }
+
+    @Test
+    public void flags() {
+        assertThat(new GrepExcelQuery("A =~ /FOO/", Pattern.CASE_INSENSITIVE).matches(row("foo")::get), is(true));
+        assertThat(new GrepExcelQuery("A =~ /FOO/", 0).matches(row("foo")::get), is(false));
+    }
+
+    @Test
+    public void shortCircuit() {
+        Row or = row("x", "y", "z");
+        assertThat(new GrepExcelQuery("A =~ /x/ || B =~ /y/ || C =~ /z/", 0).matches(or::get), is(true));
+        assertThat(or.readColumns, is(Collections.singletonList(0)));
+
+        Row and = row("-", "y", "z");
+        assertThat(new GrepExcelQuery("A =~ /x/ && B =~ /y/ || !(C !~ /z/)", 0).matches(and::get), is(true));
+        assertThat(and.readColumns, is(Arrays.asList(0, 2)));
+    }
+
+    @Test
+    public void invalidQuery() {
+        assertInvalid("", "Invalid query \"\": column name expected at index 0");
+        assertInvalid("A =~ /x/ &&", "Invalid query \"A =~ /x/ &&\": column name expected at index 11");
+        assertInvalid("(A =~ /x/", "Invalid query \"(A =~ /x/\": ')' expected at index 9");
+        assertInvalid("A == /x/", "Invalid query \"A == /x/\": '=~' or '!~' expected at index 2");
+        assertInvalid("A =~ x", "Invalid query \"A =~ x\": '/' expected at index 5");
+        assertInvalid("A =~ /x\\/", "Invalid query \"A =~ /x\\/\": '/' expected at index 9");
+        assertInvalid("A =~ /x/ B =~ /y/", "Invalid query \"A =~ /x/ B =~ /y/\": unexpected character at index 9");
+        assertInvalid("A =~ /[x/", "Invalid query \"A =~ /[x/\": Unclosed character class");
+    }
+
+    /**
+     * 行を生成します。
+     *
+     * @param values A列から順に、セルの値
+     * @return 行
+     */
+    private static Row row(String... values) {
+        return new Row(values);
+    }
+
+    /**
+     * クエリの書式が正しくない場合に、例外がスローされることを確認します。
+     *
+     * @param queryText クエリ文字列
+     * @param message   例外のメッセージ
+     */
+    private static void assertInvalid(String queryText, String message) {
+        try {
+            new GrepExcelQuery(queryText, 0);
+            fail("no exception: " + queryText);
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is(message));
+        }
+    }
+
+    /**
+     * 評価時に読み込まれた列を記録する行です。
+     */
+    private static class Row {
+
+        /**
+         * A列から順に、セルの値。
+         */
+        private final String[] values;
+
+        /**
+         * 読み込まれた列インデックス（読み込まれた順）。
+         */
+        private final List<Integer> readColumns = new ArrayList<>();
+
+        /**
+         * コンストラクタです。
+         *
+         * @param values A列から順に、セルの値
+         */
+        Row(String[] values) {
+            this.values = values;
+        }
+
+        /**
+         * セルの値を取得します。
+         *
+         * @param columnIndex 列インデックス（0始まり）
+         * @return セルの値
+         */
+        String get(int columnIndex) {
+            readColumns.add(columnIndex);
+            return values[columnIndex];
+        }
+
+    }
+
+}
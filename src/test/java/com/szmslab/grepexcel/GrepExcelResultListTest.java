@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link GrepExcelResultList}のテストクラスです。
+ *
+ * @author szmslab
+ */
+public class GrepExcelResultListTest {
+
+    /**
+     * テスト対象のリスト（検索処理で追加した A1, C2 を含む）。
+     */
+    private GrepExcelResultList resultList;
+
+    /**
+     * 検索処理と同様に検索結果を追加します。
+     */
+    @Before
+    public void setUp() {
+        resultList = new GrepExcelResultList();
+        int locationId = resultList.locationId("book.xlsx", "Sheet1");
+        resultList.add(locationId, 0, 0, "foo");
+        resultList.add(locationId, 1, 2, "bar");
+    }
+
+    @Test
+    public void get() {
+        assertThat(resultList.get(1), is(new GrepExcelResult("book.xlsx", "Sheet1", "C2", "bar")));
+        assertThat(resultList.get(1).hashCode(), is(new GrepExcelResult("book.xlsx", "Sheet1", "C2", "bar").hashCode()));
+    }
+
+    @Test
+    public void containsAndRemove() {
+        GrepExcelResult first = resultList.get(0);
+
+        assertThat(resultList.contains(first), is(true));
+        assertThat(resultList.indexOf(resultList.get(1)), is(1));
+        assertThat(resultList.remove(first), is(true));
+        assertThat(resultList, is(Collections.singletonList(new GrepExcelResult("book.xlsx", "Sheet1", "C2", "bar"))));
+    }
+
+    @Test
+    public void addKeepsResult() {
+        GrepExcelResult absolute = new GrepExcelResult("book.xlsx", "Sheet1", "$B$2", "baz");
+        GrepExcelResult text = new GrepExcelResult("other.xlsx", "Sheet2", "not an address", "qux",
+                Collections.singletonList(new GrepExcelResult("other.xlsx", "Sheet2", "A1", "quux")));
+
+        resultList.add(1, absolute);
+        resultList.add(text);
+
+        assertThat(resultList.size(), is(4));
+        assertThat(resultList.get(1), is(sameInstance(absolute)));
+        assertThat(resultList.get(3), is(sameInstance(text)));
+        assertThat(resultList.get(2), is(new GrepExcelResult("book.xlsx", "Sheet1", "C2", "bar")));
+
+        resultList.remove(0);
+        assertThat(resultList.get(0), is(sameInstance(absolute)));
+        assertThat(resultList.indexOf(text), is(2));
+    }
+
+    @Test
+    public void set() {
+        GrepExcelResult result = new GrepExcelResult("book.xlsx", "Sheet1", "$B$2", "baz");
+
+        assertThat(resultList.set(0, result), is(new GrepExcelResult("book.xlsx", "Sheet1", "A1", "foo")));
+        assertThat(resultList, is(Arrays.asList(result, new GrepExcelResult("book.xlsx", "Sheet1", "C2", "bar"))));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link GrepExcelResultSummary}のテストクラスです。
+ *
+ * @author szmslab
+ */
+public class GrepExcelResultSummaryTest {
+
+    /**
+     * 検索結果（book1.xlsx は A1, B2、book2.xlsx は検索結果なし、book3.xlsx は C3）。
+     */
+    private GrepExcelResultFile[][] results;
+
+    /**
+     * 検索処理と同様に、ファイルごとの格納先に検索結果を追加します。
+     */
+    @Before
+    public void setUp() {
+        results = new GrepExcelResultFile[][]{
+                {createResultFile("book1.xlsx", 0, 1)},
+                {createResultFile("book2.xlsx")},
+                {createResultFile("book3.xlsx", 2)}
+        };
+    }
+
+    @Test
+    public void counts() {
+        GrepExcelResultSummary summary = new GrepExcelResultSummary(results);
+
+        assertThat(summary.targetFileCount(), is(3));
+        assertThat(summary.matchFileCount(), is(2));
+        assertThat(summary.matchCount(), is(3));
+        assertThat(summary.allResultList(), is(Arrays.asList(
+                new GrepExcelResult("book1.xlsx", "Sheet1", "A1", "foo0"),
+                new GrepExcelResult("book1.xlsx", "Sheet1", "B2", "foo1"),
+                new GrepExcelResult("book3.xlsx", "Sheet1", "C3", "foo2"))));
+    }
+
+    @Test
+    public void modifyAfterAggregation() {
+        GrepExcelResultSummary summary = new GrepExcelResultSummary(results);
+        List<GrepExcelResult> resultList = summary.resultFileList.get(0).resultList;
+
+        assertUnsupported(resultList::clear);
+        assertUnsupported(() -> resultList.add(new GrepExcelResult("book1.xlsx", "Sheet1", "D4", "foo")));
+        assertUnsupported(() -> resultList.remove(0));
+        assertUnsupported(() -> summary.resultFileList.get(1).resultList
+                .add(new GrepExcelResult("book2.xlsx", "Sheet1", "A1", "foo")));
+
+        assertThat(summary.matchFileCount(), is(2));
+        assertThat(summary.matchCount(), is(3));
+        assertThat(summary.allResultList().get(0), is(new GrepExcelResult("book1.xlsx", "Sheet1", "A1", "foo0")));
+        assertThat(summary.allResultList().size(), is(3));
+    }
+
+    @Test
+    public void modifiableSummary() {
+        GrepExcelResultSummary summary = new GrepExcelResultSummary(false);
+        GrepExcelResultFile resultFile = createResultFile("book1.xlsx", 0, 1);
+        summary.resultFileList.add(resultFile);
+        resultFile.resultList.clear();
+
+        assertThat(summary.matchFileCount(), is(0));
+        assertThat(summary.matchCount(), is(0));
+        assertThat(summary.allResultList().isEmpty(), is(true));
+    }
+
+    /**
+     * 指定したセルを検索結果とするExcelファイル検索結果（ファイル単位）を生成します。
+     *
+     * @param filePath ファイルパス
+     * @param indexes  検索結果のセルの行・列インデックス（0始まり）
+     * @return Excelファイル検索結果（ファイル単位）
+     */
+    private static GrepExcelResultFile createResultFile(String filePath, int... indexes) {
+        GrepExcelResultList resultList = new GrepExcelResultList();
+        int locationId = resultList.locationId(filePath, "Sheet1");
+        for (int index : indexes) {
+            resultList.add(locationId, index, index, "foo" + index);
+        }
+        return new GrepExcelResultFile(Paths.get(filePath), filePath, resultList);
+    }
+
+    /**
+     * 変更できないリストを変更した場合に、例外がスローされることを確認します。
+     *
+     * @param modification リストの変更
+     */
+    private static void assertUnsupported(Runnable modification) {
+        try {
+            modification.run();
+            fail("modified");
+        } catch (UnsupportedOperationException e) {
+            // 変更できない
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * ストリームで読み込む検索処理（{@link GrepExcelStreamingReader}）のテストクラスです。
+ * <p>
+ * ストリームで読み込んだ検索結果が、ワークブック全体を読み込んだ検索結果と一致することを確認します。
+ *
+ * @author szmslab
+ */
+public class GrepExcelStreamingTest {
+
+    /**
+     * 一時フォルダ。
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * 共有数式に書き換える前のExcelファイル。
+     */
+    private Path source;
+
+    /**
+     * 検索対象のExcelファイル。
+     * <p>
+     * Dataワークシートは、A列は "foo行番号"、B列は数値、C列は数式 {@code B*2} の共有数式です。
+     * Fillワークシートは、B列に名前・他のワークシートを参照する数式を下方向にコピーした共有数式です。
+     */
+    private Path file;
+
+    /**
+     * 検索対象のExcelファイルを作成します。
+     * <p>
+     * POIは共有数式を出力しないため、出力したワークシートのXMLの数式を共有数式に書き換えます。
+     *
+     * @throws Exception 作成に失敗した場合
+     */
+    @Before
+    public void setUp() throws Exception {
+        source = temporaryFolder.newFile("source.xlsx").toPath();
+        try (Workbook book = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(source)) {
+            Sheet sheet = book.createSheet("Data");
+            for (int i = 0; i < 10; i++) {
+                Row row = sheet.createRow(i * 2);
+                row.createCell(0).setCellValue("foo" + (i * 2 + 1));
+                row.createCell(1).setCellValue(i);
+                row.createCell(2).setCellFormula("B" + (i * 2 + 1) + "*2");
+            }
+            Sheet other = book.createSheet("Other");
+            other.createRow(0).createCell(4).setCellValue(3);
+            other.createRow(3).createCell(3).setCellValue("foo");
+            Name rate = book.createName();
+            rate.setNameName("Rate");
+            rate.setRefersToFormula("Other!$E$1");
+            Sheet fill = book.createSheet("Fill");
+            for (int i = 0; i < 30; i++) {
+                Row row = fill.createRow(i);
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellFormula("SUM($A$1:A" + (i + 1) + ")*Rate+Other!E$1");
+            }
+            book.getCreationHelper().createFormulaEvaluator().evaluateAll();
+            book.write(out);
+        }
+
+        file = temporaryFolder.getRoot().toPath().resolve("book.xlsx");
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(source));
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                byte[] data = readAll(in);
+                if (entry.getName().equals("xl/worksheets/sheet1.xml")) {
+                    data = new String(data, StandardCharsets.UTF_8)
+                            .replace("<f>B1*2</f>", "<f t=\"shared\" ref=\"C1:C19\" si=\"0\">B1*2</f>")
+                            .replaceAll("<f>B\\d+\\*2</f>", "<f t=\"shared\" si=\"0\"/>")
+                            .getBytes(StandardCharsets.UTF_8);
+                } else if (entry.getName().equals("xl/worksheets/sheet3.xml")) {
+                    data = new String(data, StandardCharsets.UTF_8)
+                            .replace("<f>SUM($A$1:A1)*Rate+Other!E$1</f>",
+                                    "<f t=\"shared\" ref=\"B1:B30\" si=\"0\">SUM($A$1:A1)*Rate+Other!E$1</f>")
+                            .replaceAll("<f>SUM\\(\\$A\\$1:A\\d+\\)\\*Rate\\+Other!E\\$1</f>",
+                                    "<f t=\"shared\" si=\"0\"/>")
+                            .getBytes(StandardCharsets.UTF_8);
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(data);
+                out.closeEntry();
+            }
+        }
+    }
+
+    @Test
+    public void grep() {
+        assertSameResult(new GrepExcel(), "foo");
+        assertSameResult(new GrepExcel().range("A3:C10"), "1");
+        assertSameResult(new GrepExcel().cellTypes(GrepExcelCellType.NUMERIC), "1");
+    }
+
+    @Test
+    public void grepContext() {
+        assertSameResult(new GrepExcel().beforeRows(1).afterRows(1).beforeColumns(1).afterColumns(1), "foo");
+        assertSameResult(new GrepExcel().beforeRows(3).afterColumns(2).range("A5:A20"), "foo1");
+        assertSameResult(new GrepExcel().afterRows(Integer.MAX_VALUE).afterColumns(Integer.MAX_VALUE), "foo1$");
+    }
+
+    @Test
+    public void grepSharedFormulaText() {
+        List<GrepExcelResult> results = assertSameResult(new GrepExcel(), "B\\d+\\*2");
+
+        assertThat(results.size(), is(10));
+        assertThat(results.get(1).cellValue, is("=B3*2"));
+    }
+
+    @Test
+    public void grepSharedFormulaCachedResult() {
+        List<GrepExcelResult> results = assertSameResult(
+                new GrepExcel().formulaResult(true).cachedFormulaResult(true).cellTypes(GrepExcelCellType.FORMULA)
+                        .sheetName("Data"),
+                "^1[0-9]$");
+
+        assertThat(results.size(), is(5));
+    }
+
+    @Test
+    public void sharedFormula() throws Exception {
+        List<String> formulas = new ArrayList<>();
+        OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        try {
+            new GrepExcelStreamingReader(pkg).read(sheetName -> true, (sheetName, rowIndex, cells) -> {
+                for (GrepExcelStreamingReader.StreamingCell cell : cells) {
+                    if (cell.getColumnIndex() != 2) {
+                        continue;
+                    }
+                    try {
+                        formulas.add(cell.getFormula());
+                    } catch (GrepExcelStreamingReader.SharedFormulaException e) {
+                        formulas.add(e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            pkg.revert();
+        }
+
+        assertThat(formulas.subList(0, 2), is(Arrays.asList("B1*2", "B3*2")));
+    }
+
+    @Test
+    public void filledDownSharedFormula() throws Exception {
+        String sheet = new String(readEntry(file, "xl/worksheets/sheet3.xml"), StandardCharsets.UTF_8);
+        assertThat(sheet.split("<f t=\"shared\" si=\"0\"/>", -1).length, is(30));
+
+        List<GrepExcelResult> results = assertSameResult(new GrepExcel().sheetName("Fill"), "Rate");
+        assertThat(results.size(), is(30));
+        // POIの共有数式の変換は他のワークシートの参照のワークシート名を保持しないため、前方のみ確認する
+        assertThat(results.get(29).cellValue.startsWith("=SUM($A$1:A30)*Rate+"), is(true));
+
+        assertSameResult(new GrepExcel().sheetName("Fill"), "A1[0-9]\\)");
+        assertSameResult(new GrepExcel().formulaResult(true).cachedFormulaResult(true).sheetName("Fill"), "^1");
+    }
+
+    @Test
+    public void diffSharedFormula() {
+        assertThat(new GrepExcel().sheetName("Data").diff(".", source, file).allResultList().isEmpty(), is(true));
+        assertThat(new GrepExcel().formulaResult(true).cachedFormulaResult(true).diff(".", source, file)
+                .allResultList().isEmpty(), is(true));
+    }
+
+    /**
+     * ストリームで読み込んだ検索結果が、ワークブック全体を読み込んだ検索結果と一致することを確認します。
+     *
+     * @param grepExcel   検索条件を設定した{@link GrepExcel}
+     * @param patternText 検索パターン
+     * @return 検索結果
+     */
+    private List<GrepExcelResult> assertSameResult(GrepExcel grepExcel, String patternText) {
+        List<GrepExcelResult> expected = grepExcel.grep(patternText, file).allResultList();
+        List<GrepExcelResult> actual = grepExcel.grepStreaming(Pattern.compile(patternText), file);
+        if (expected.isEmpty()) {
+            fail("no result: " + patternText);
+        }
+        assertThat(actual, is(expected));
+        return actual;
+    }
+
+    /**
+     * ZIPファイルのエントリのデータを読み込みます。
+     *
+     * @param zipFile   ZIPファイル
+     * @param entryName エントリ名
+     * @return データ
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static byte[] readEntry(Path zipFile, String entryName) throws IOException {
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zipFile))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                if (entry.getName().equals(entryName)) {
+                    return readAll(in);
+                }
+            }
+        }
+        throw new IOException("entry not found: " + entryName);
+    }
+
+    /**
+     * 入力ストリームの残りのデータを全て読み込みます。
+     *
+     * @param in 入力ストリーム
+     * @return データ
+     * @throws IOException 入出力エラーが発生した場合
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+}
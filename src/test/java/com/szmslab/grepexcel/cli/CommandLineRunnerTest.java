@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016 szmslab
+ *
+ * This software is released under the MIT License.
+ * http://opensource.org/licenses/mit-license.php
+ */
+package com.szmslab.grepexcel.cli;
+
+import com.szmslab.grepexcel.GrepExcel;
+import com.szmslab.grepexcel.GrepExcelResultSummary;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@link CommandLineRunner}のテストクラスです。
+ *
+ * @author szmslab
+ */
+public class CommandLineRunnerTest {
+
+    /**
+     * 一時フォルダ。
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * 検索対象のExcelファイル（ワークシート「Spec1」「Other」の A1 に "foo" を含む）。
+     */
+    private Path file;
+
+    /**
+     * 検索対象のExcelファイルを作成します。
+     *
+     * @throws Exception 作成に失敗した場合
+     */
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile("book.xlsx").toPath();
+        try (Workbook book = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            book.createSheet("Spec1").createRow(0).createCell(0).setCellValue("spec foo");
+            book.createSheet("Other").createRow(0).createCell(0).setCellValue("hello foo");
+            book.write(out);
+        }
+    }
+
+    @Test
+    public void sheetNameGlob() throws Exception {
+        GrepExcel grepExcel = createGrepExcel("-n", "Oth*", "foo", file.toString());
+
+        assertThat(grepExcel.sheetNamePattern().matcher("Other").find(), is(true));
+        assertThat(grepExcel.sheetNamePattern().matcher("Spec1").find(), is(false));
+        assertThat(grepSheetNames(grepExcel), is("Other"));
+    }
+
+    @Test
+    public void sheetNameRegex() throws Exception {
+        GrepExcel grepExcel = createGrepExcel("-e", "^Spec\\d$", "foo", file.toString());
+
+        assertThat(grepExcel.sheetNamePattern().matcher("Spec1").find(), is(true));
+        assertThat(grepExcel.sheetNamePattern().matcher("Other").find(), is(false));
+        assertThat(grepSheetNames(grepExcel), is("Spec1"));
+    }
+
+    @Test
+    public void allSheets() throws Exception {
+        GrepExcel grepExcel = createGrepExcel("foo", file.toString());
+
+        assertThat(grepExcel.sheetNamePattern(), is(nullValue()));
+        assertThat(grepSheetNames(grepExcel), is("Spec1,Other"));
+    }
+
+    @Test(expected = CmdLineException.class)
+    public void sheetNameGlobAndRegex() throws Exception {
+        createGrepExcel("-n", "Other", "-e", "Spec", "foo", file.toString());
+    }
+
+    @Test
+    public void invalidRange() {
+        assertThat(runWithError("-a", "B2:A1", "foo", file.toString()),
+                is("Invalid range \"B2:A1\"" + System.lineSeparator()));
+    }
+
+    @Test
+    public void invalidQuery() {
+        assertThat(runWithError("-q", "A =~ /foo", file.toString()),
+                is("Invalid query \"A =~ /foo\": '/' expected at index 9" + System.lineSeparator()));
+    }
+
+    @Test
+    public void invalidSheetNameRegex() {
+        assertThat(runWithError("-e", "[", "foo", file.toString()).startsWith("Unclosed character class"), is(true));
+    }
+
+    /**
+     * コマンドライン引数が不正な場合と同様に、エラーとなることを確認します。
+     *
+     * @param args コマンドライン引数
+     * @return 標準エラー出力に出力されたエラーメッセージ（使い方の前の空行まで）
+     */
+    private String runWithError(String... args) {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        try {
+            System.setErr(new PrintStream(err, true));
+            assertThat(new CommandLineRunner().run(args), is(1));
+        } finally {
+            System.setErr(originalErr);
+        }
+        String output = new String(err.toByteArray(), StandardCharsets.UTF_8);
+        String usage = System.lineSeparator() + System.lineSeparator() + "Usage: grepexcel";
+        assertThat(output.contains(usage), is(true));
+        return output.substring(0, output.indexOf(usage) + System.lineSeparator().length());
+    }
+
+    /**
+     * コマンドライン引数をパースし、{@link GrepExcel}を生成します。
+     *
+     * @param args コマンドライン引数
+     * @return 設定済みの{@link GrepExcel}
+     * @throws CmdLineException コマンドライン引数が不正な場合
+     */
+    private GrepExcel createGrepExcel(String... args) throws CmdLineException {
+        CommandLineParameter parameter = new CommandLineParameter();
+        new CmdLineParser(parameter).parseArgument(args);
+        return new CommandLineRunner().createGrepExcel(parameter);
+    }
+
+    /**
+     * 検索結果が存在するワークシート名を取得します。
+     *
+     * @param grepExcel 設定済みの{@link GrepExcel}
+     * @return 検索結果が存在するワークシート名（カンマ区切り）
+     */
+    private String grepSheetNames(GrepExcel grepExcel) {
+        GrepExcelResultSummary summary = grepExcel.grep("foo", file);
+        return summary.allResultList().stream().map(r -> r.sheetName).collect(Collectors.joining(","));
+    }
+
+}